@@ -1,7 +1,9 @@
 package base;
 
+import client.DPwRKey;
 import exceptions.KeyNotFoundException;
 import exceptions.NetworkException;
+import model.PlasmaEntry;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
@@ -11,17 +13,40 @@ import util.InetSocketAddressConverter;
 
 import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 public abstract class KeyValueStore extends DB {
 
     public static final String ADDRESS_KEY = "org.jb.dpwr.benchmark.server";
-    private static final String NAMESPACE_SEPARATOR = ".";
 
-    private static String generateKey(final String table, final String key) {
-        return table.concat(NAMESPACE_SEPARATOR).concat(key);
+    /**
+     * The number of keys per table whose encoding and routing are kept between operations.
+     */
+    private static final int KEY_CACHE_SIZE = 1 << 14;
+
+    /**
+     * Whether the missing prefix listing has already been reported, so that it is only printed once per run.
+     */
+    private static final AtomicBoolean prefixListingWarned = new AtomicBoolean();
+
+    /**
+     * YCSB creates one instance per thread, so the cache needs no synchronization.
+     */
+    private final Map<String, Map<String, DPwRKey>> keyCache = new HashMap<>();
+
+    private DPwRKey generateKey(final String table, final String key) {
+        return keyCache.computeIfAbsent(table, ignored -> new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, DPwRKey> eldest) {
+                return size() > KEY_CACHE_SIZE;
+            }
+        }).computeIfAbsent(key, ignored -> new DPwRKey(table, key));
     }
 
     @Override
@@ -54,7 +79,7 @@ public abstract class KeyValueStore extends DB {
      * @throws NetworkException     If the network connection fails.
      * @throws KeyNotFoundException If the specified key does not exist.
      */
-    public abstract byte[] get(String key) throws NetworkException, KeyNotFoundException;
+    public abstract byte[] get(DPwRKey key) throws NetworkException, KeyNotFoundException;
 
     /**
      * Stores an object.
@@ -64,7 +89,7 @@ public abstract class KeyValueStore extends DB {
      * @return A YCSB {@link Status} code.
      * @throws NetworkException If the network connection fails.
      */
-    public abstract Status put(String key, byte[] value) throws NetworkException;
+    public abstract Status put(DPwRKey key, byte[] value) throws NetworkException;
 
     /**
      * Deletes the given key.
@@ -74,7 +99,33 @@ public abstract class KeyValueStore extends DB {
      * @throws NetworkException     If the network connection fails.
      * @throws KeyNotFoundException If the specified key does not exist.
      */
-    public abstract Status delete(String key) throws NetworkException, KeyNotFoundException;
+    public abstract Status delete(DPwRKey key) throws NetworkException, KeyNotFoundException;
+
+    /**
+     * Stores an object, replacing the object stored under the key if there is one.
+     *
+     * @param key   The key, under which the object shall be stored.
+     * @param value The object to store.
+     * @return A YCSB {@link Status} code.
+     * @throws NetworkException If the network connection fails.
+     */
+    public abstract Status upsert(DPwRKey key, byte[] value) throws NetworkException;
+
+    /**
+     * Lists the entries whose key starts with the given prefix, in no particular order.
+     *
+     * @param prefix The key prefix.
+     * @return The matching entries, the stream has to be closed.
+     * @throws NetworkException If the network connection fails.
+     */
+    public abstract Stream<PlasmaEntry> list(String prefix) throws NetworkException;
+
+    /**
+     * Returns whether the servers filter listings by key prefix. Without it every listing transfers the whole store.
+     *
+     * @return Whether {@link #list(String)} only transfers the matching entries.
+     */
+    public abstract boolean canListByPrefix();
 
     @Override
     public Status read(final String table, final String key, final Set<String> fields, final Map<String, ByteIterator> result) {
@@ -100,10 +151,41 @@ public abstract class KeyValueStore extends DB {
         }
     }
 
+    /**
+     * Lists the records of the table, filtered by the servers on the table prefix of the keys, and returns up to the
+     * requested number of them whose key is not smaller than the start key. Only the table is filtered on the
+     * servers, the start key is compared by the client. The store keeps no key order, so these are the first such
+     * records listed, not the records following the start key. Scans are refused with
+     * {@link Status#NOT_IMPLEMENTED} if the servers cannot filter by prefix, since each of them would transfer the
+     * whole store.
+     */
     @Override
     public Status scan(final String table, final String startkey, final int recordcount, final Set<String> fields,
                        final Vector<HashMap<String, ByteIterator>> result) {
-        return Status.NOT_IMPLEMENTED;
+        if (fields != null && fields.size() != 1) {
+            System.err.println("Field counts other than 1 are not supported!");
+            return Status.BAD_REQUEST;
+        }
+        if (!canListByPrefix()) {
+            if (prefixListingWarned.compareAndSet(false, true)) {
+                System.err.println("Scans are not supported without the PREFIX_LISTING protocol feature!");
+            }
+            return Status.NOT_IMPLEMENTED;
+        }
+        final String field = fields == null ? "field0" : fields.iterator().next();
+        final String firstKey = generateKey(table, startkey).key();
+        try (final Stream<PlasmaEntry> entries = list(DPwRKey.namespacePrefix(table))) {
+            entries.filter(entry -> entry.key.compareTo(firstKey) >= 0)
+                    .limit(recordcount)
+                    .forEach(entry -> {
+                        final HashMap<String, ByteIterator> record = new HashMap<>();
+                        record.put(field, new ByteArrayByteIterator(entry.value));
+                        result.add(record);
+                    });
+            return Status.OK;
+        } catch (final NetworkException | CompletionException e) {
+            return Status.SERVICE_UNAVAILABLE;
+        }
     }
 
     @Override
@@ -112,15 +194,11 @@ public abstract class KeyValueStore extends DB {
             System.err.println("Field counts other than 1 are not supported!");
             return Status.BAD_REQUEST;
         }
-        final String _key = generateKey(table, key);
         try {
-            delete(_key);
+            return upsert(generateKey(table, key), values.values().iterator().next().toArray());
         } catch (final NetworkException e) {
             return Status.SERVICE_UNAVAILABLE;
-        } catch (final KeyNotFoundException e) {
-            return Status.NOT_FOUND;
         }
-        return insert(table, key, values);
     }
 
     @Override
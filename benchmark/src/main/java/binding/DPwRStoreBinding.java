@@ -2,19 +2,70 @@ package binding;
 
 import base.KeyValueStore;
 import client.DPwRClient;
+import client.DPwRKey;
+import client.NearCachePolicy;
+import client.ProtocolFeature;
 import exceptions.DuplicateKeyException;
 import exceptions.KeyNotFoundException;
 import exceptions.NetworkException;
+import model.PlasmaEntry;
 import site.ycsb.Status;
+import utils.ConsistentHashPartitioner;
+import utils.WaitStrategy;
 
 import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class DPwRStoreBinding extends KeyValueStore {
 
     /**
-     * The client instance used for all operations.
+     * The property holding a comma separated list of {@link ProtocolFeature}s the client should use.
      */
-    private final DPwRClient client = new DPwRClient();
+    public static final String PROTOCOL_FEATURES_KEY = "org.jb.dpwr.benchmark.features";
+
+    /**
+     * The property selecting how keys are placed on the servers, either "modulo" (the default) or "consistent".
+     */
+    public static final String PARTITIONER_KEY = "org.jb.dpwr.benchmark.partitioner";
+
+    /**
+     * The property selecting how threads wait for the network, either "spin" (the default), "yield" or "await".
+     */
+    public static final String WAIT_STRATEGY_KEY = "org.jb.dpwr.benchmark.wait";
+
+    /**
+     * The property enabling connections to all servers as soon as a YCSB thread starts, either "true" or "false"
+     * (the default).
+     */
+    public static final String EAGER_CONNECT_KEY = "org.jb.dpwr.benchmark.eagerConnect";
+
+    /**
+     * The property holding the number of entries of the client's near cache, which is disabled by default. The
+     * optional property {@link #NEAR_CACHE_TTL_KEY} sets the time to live of the entries in milliseconds.
+     */
+    public static final String NEAR_CACHE_KEY = "org.jb.dpwr.benchmark.nearCache";
+
+    public static final String NEAR_CACHE_TTL_KEY = "org.jb.dpwr.benchmark.nearCacheTtl";
+
+    /**
+     * The property holding the size in bytes up to which entries are sent inline, which only takes effect with
+     * {@link ProtocolFeature#INLINE_VALUES}.
+     */
+    public static final String INLINE_THRESHOLD_KEY = "org.jb.dpwr.benchmark.inlineThreshold";
+
+    /**
+     * The client instance used for all operations. It is shared by all YCSB threads, each thread gets its own
+     * worker inside the client.
+     */
+    private static final DPwRClient client = new DPwRClient();
+
+    /**
+     * Whether the shared client has already been initialized by one of the binding instances.
+     */
+    private static boolean initialized = false;
 
     /**
      * Initializes this binding instance and connects to the remote server.
@@ -23,10 +74,52 @@ public class DPwRStoreBinding extends KeyValueStore {
      */
     @Override
     public void initialize(final InetSocketAddress serverAddress) throws NetworkException {
-        client.setServerAddress(serverAddress);
-        client.setServerTimeout(500);
-        client.setVerbose(false);
-        client.initialize();
+        synchronized (DPwRStoreBinding.class) {
+            if (initialized) {
+                return;
+            }
+            client.setServerAddress(serverAddress);
+            client.setServerTimeout(500);
+            client.setVerbose(false);
+            client.setProtocolFeatures(parseProtocolFeatures(getProperties().getProperty(PROTOCOL_FEATURES_KEY, "")));
+            if ("consistent".equalsIgnoreCase(getProperties().getProperty(PARTITIONER_KEY, "modulo"))) {
+                client.setPartitioner(new ConsistentHashPartitioner());
+            }
+            client.setWaitStrategy(parseWaitStrategy(getProperties().getProperty(WAIT_STRATEGY_KEY, "spin")));
+            client.setEagerConnect(Boolean.parseBoolean(getProperties().getProperty(EAGER_CONNECT_KEY, "false")));
+            final String inlineThreshold = getProperties().getProperty(INLINE_THRESHOLD_KEY);
+            if (inlineThreshold != null) {
+                client.setInlineThreshold(Integer.parseInt(inlineThreshold));
+            }
+            final int nearCacheEntries = Integer.parseInt(getProperties().getProperty(NEAR_CACHE_KEY, "0"));
+            if (nearCacheEntries > 0) {
+                final long timeToLive = Long.parseLong(getProperties().getProperty(NEAR_CACHE_TTL_KEY, "0"));
+                client.setNearCache(NearCachePolicy.defaults()
+                        .withMaxEntries(nearCacheEntries)
+                        .withTimeToLive(timeToLive > 0 ? Duration.ofMillis(timeToLive) : null));
+            }
+            client.initialize();
+            initialized = true;
+        }
+    }
+
+    private static Set<ProtocolFeature> parseProtocolFeatures(final String features) {
+        final Set<ProtocolFeature> result = EnumSet.noneOf(ProtocolFeature.class);
+        for (final String feature : features.split(",")) {
+            if (!feature.isBlank()) {
+                result.add(ProtocolFeature.valueOf(feature.trim().toUpperCase()));
+            }
+        }
+        return result;
+    }
+
+    private static WaitStrategy parseWaitStrategy(final String strategy) {
+        return switch (strategy.trim().toLowerCase()) {
+            case "spin" -> WaitStrategy.busySpin();
+            case "yield" -> WaitStrategy.spinThenYield(WaitStrategy.DEFAULT_SPINS);
+            case "await" -> WaitStrategy.spinThenAwait(WaitStrategy.DEFAULT_SPINS);
+            default -> throw new IllegalArgumentException("Unknown wait strategy " + strategy);
+        };
     }
 
     /**
@@ -38,7 +131,7 @@ public class DPwRStoreBinding extends KeyValueStore {
      * @throws KeyNotFoundException If the specified key does not exist.
      */
     @Override
-    public byte[] get(final String key) throws NetworkException, KeyNotFoundException {
+    public byte[] get(final DPwRKey key) throws NetworkException, KeyNotFoundException {
         return client.get(key, 5);
     }
 
@@ -50,7 +143,7 @@ public class DPwRStoreBinding extends KeyValueStore {
      * @return A YCSB {@link Status} code.
      */
     @Override
-    public Status put(final String key, final byte[] value) {
+    public Status put(final DPwRKey key, final byte[] value) {
         try {
             client.put(key, value, 5);
         } catch (final DuplicateKeyException e) {
@@ -68,7 +161,7 @@ public class DPwRStoreBinding extends KeyValueStore {
      * @return A YCSB {@link Status} code.
      */
     @Override
-    public Status delete(final String key) {
+    public Status delete(final DPwRKey key) {
         try {
             client.del(key, 5);
         } catch (final KeyNotFoundException e) {
@@ -78,4 +171,41 @@ public class DPwRStoreBinding extends KeyValueStore {
         }
         return Status.OK;
     }
+
+    /**
+     * Stores an object, replacing the object stored under the key if there is one.
+     *
+     * @param key   The key, under which the object shall be stored.
+     * @param value The object to store.
+     * @return A YCSB {@link Status} code.
+     */
+    @Override
+    public Status upsert(final DPwRKey key, final byte[] value) {
+        try {
+            client.upsert(key, value, 5);
+        } catch (final NetworkException e) {
+            return Status.SERVICE_UNAVAILABLE;
+        }
+        return Status.OK;
+    }
+
+    /**
+     * Lists the entries whose key starts with the given prefix.
+     *
+     * @param prefix The key prefix.
+     * @return The matching entries, the stream has to be closed.
+     */
+    @Override
+    public Stream<PlasmaEntry> list(final String prefix) throws NetworkException {
+        return client.listStream(prefix, 5);
+    }
+
+    /**
+     * Scans need a server that supports {@link ProtocolFeature#PREFIX_LISTING} and the feature enabled with
+     * {@link #PROTOCOL_FEATURES_KEY}, which is off by default.
+     */
+    @Override
+    public boolean canListByPrefix() {
+        return client.supports(ProtocolFeature.PREFIX_LISTING);
+    }
 }
@@ -1,6 +1,7 @@
 package runner;
 
 import base.KeyValueStore;
+import binding.DPwRStoreBinding;
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
 import site.ycsb.Client;
@@ -52,6 +53,11 @@ public class BenchmarkRunner implements Runnable {
             description = "Target operation per second")
     private int target = 999999999;
 
+    @CommandLine.Option(
+            names = {"-f", "--features"},
+            description = "Comma separated list of optional protocol features to enable, scans require PREFIX_LISTING")
+    private String features = "";
+
     @Override
     public void run() {
         Client.main(generateParameters());
@@ -85,6 +91,12 @@ public class BenchmarkRunner implements Runnable {
         parameters.add(String.format("%s=%s:%d", KeyValueStore.ADDRESS_KEY,
                 serverAddress.getHostString(), serverAddress.getPort()));
 
+        // Set protocol features
+        if (!features.isBlank()) {
+            parameters.add("-p");
+            parameters.add(String.format("%s=%s", DPwRStoreBinding.PROTOCOL_FEATURES_KEY, features));
+        }
+
         // Write results to file if path was set
         if (export != null) {
             parameters.add("-p");
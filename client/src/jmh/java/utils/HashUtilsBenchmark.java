@@ -0,0 +1,67 @@
+package utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the routing of {@link HashUtils} with the original implementation, which created a new digest per key and
+ * reduced the hash through a hex string and a {@link BigInteger}. Run with {@code ./gradlew :client:jmh} and
+ * {@code -prof gc} in the JMH arguments to compare the allocation rates as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashUtilsBenchmark {
+    @Param({"3", "16"})
+    private int serverCount;
+
+    private String[] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "usertable.user" + (i * 7919L + 1_000_000_000L);
+        }
+    }
+
+    private String nextKey() {
+        index = (index + 1) & (keys.length - 1);
+        return keys[index];
+    }
+
+    @Benchmark
+    public int getResponsibleServerID() {
+        return HashUtils.getResponsibleServerID(nextKey(), serverCount);
+    }
+
+    @Benchmark
+    public int bigIntegerRouting() throws NoSuchAlgorithmException {
+        final byte[] id = MessageDigest.getInstance("MD5").digest(nextKey().getBytes(StandardCharsets.UTF_8));
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : id) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit((b & 0xF), 16));
+        }
+        return new BigInteger(hex.toString(), 16).remainder(BigInteger.valueOf(serverCount)).intValue();
+    }
+}
@@ -0,0 +1,16 @@
+package client;
+
+/**
+ * A snapshot of the usage of the registered buffer pool of a {@link DPwRClient}.
+ *
+ * @param capacity        The maximum number of bytes the pool may register.
+ * @param registeredBytes The number of bytes currently registered, whether in use or idle.
+ * @param idleBytes       The number of registered bytes currently not used by any operation.
+ * @param hits            How often a transfer reused an idle buffer.
+ * @param registrations   How often the pool registered a new buffer.
+ * @param misses          How often a transfer got no buffer and allocated unregistered memory instead.
+ * @param deregistrations How often the pool freed a buffer to stay within its limits.
+ */
+public record BufferPoolStatistics(long capacity, long registeredBytes, long idleBytes, long hits,
+                                   long registrations, long misses, long deregistrations) {
+}
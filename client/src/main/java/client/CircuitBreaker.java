@@ -0,0 +1,61 @@
+package client;
+
+/**
+ * Keeps operations away from a server that keeps failing. Shared by all lanes of a client.
+ */
+final class CircuitBreaker {
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(final int failureThreshold, final long openDurationNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDurationNanos;
+    }
+
+    /**
+     * Returns whether an operation may be sent to the server. Once the open duration passed, a single operation is
+     * let through as a probe, and another one if the probe did not report back within the open duration.
+     */
+    synchronized boolean tryAcquire(final long now) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (now - openedAt < openDurationNanos) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        openedAt = now;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * @return Whether the breaker opened because of this failure.
+     */
+    synchronized boolean onFailure(final long now) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
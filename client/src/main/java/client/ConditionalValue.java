@@ -0,0 +1,15 @@
+package client;
+
+/**
+ * The result of {@link DPwRClient#getIfChanged(DPwRKey, byte[], int)}.
+ *
+ * @param changed Whether the hash of the object differed from the known hash.
+ * @param value   The current value if the object changed, otherwise null.
+ * @param hash    The hash the server reported, to be passed as the known hash next time.
+ */
+public record ConditionalValue(boolean changed, byte[] value, byte[] hash) {
+
+    static ConditionalValue unchanged(final byte[] hash) {
+        return new ConditionalValue(false, null, hash);
+    }
+}
@@ -0,0 +1,39 @@
+package client;
+
+import lombok.extern.slf4j.Slf4j;
+import utils.OperationCode;
+
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+final class ContainsOperation extends Operation<Boolean> {
+    private boolean requestSent;
+
+    ContainsOperation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+    }
+
+    @Override
+    protected void onStart() {
+        requestSent = false;
+    }
+
+    @Override
+    protected void step() throws TimeoutException {
+        if (!requestSent) {
+            log.info("Starting CNT operation");
+            sendRequest(OperationCode.CNT);
+            requestSent = true;
+            return;
+        }
+        final int statusCode = statusCode();
+        final boolean contains;
+        switch (statusCode) {
+            case 231 -> contains = true;
+            case 431 -> contains = false;
+            default -> throw new TimeoutException("Wrong status code: " + statusCode);
+        }
+        log.info("CNT completed");
+        complete(contains);
+    }
+}
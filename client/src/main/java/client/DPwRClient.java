@@ -4,16 +4,14 @@ import de.hhu.bsinfo.infinileap.binding.Context;
 import de.hhu.bsinfo.infinileap.binding.ContextParameters;
 import de.hhu.bsinfo.infinileap.binding.ControlException;
 import de.hhu.bsinfo.infinileap.binding.Endpoint;
-import de.hhu.bsinfo.infinileap.binding.EndpointParameters;
-import de.hhu.bsinfo.infinileap.binding.ErrorHandler;
 import de.hhu.bsinfo.infinileap.binding.NativeLogger;
-import de.hhu.bsinfo.infinileap.binding.ThreadMode;
-import de.hhu.bsinfo.infinileap.binding.Worker;
-import de.hhu.bsinfo.infinileap.binding.WorkerParameters;
 import exceptions.DuplicateKeyException;
 import exceptions.KeyNotFoundException;
 import exceptions.NetworkException;
 import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.SegmentAllocator;
+import jdk.incubator.foreign.ValueLayout;
 import lombok.extern.slf4j.Slf4j;
 import model.PlasmaEntry;
 import org.apache.commons.lang3.ObjectUtils;
@@ -21,48 +19,89 @@ import org.apache.commons.lang3.SerializationException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.LoggerConfig;
-import utils.DPwRErrorHandler;
+import utils.ModuloPartitioner;
+import utils.OperationCode;
+import utils.Partitioner;
+import utils.TopologyCache;
+import utils.WaitStatistics;
+import utils.WaitStrategy;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static org.apache.commons.lang3.SerializationUtils.serialize;
 import static org.apache.logging.log4j.Level.INFO;
 import static org.apache.logging.log4j.Level.OFF;
+import static utils.CommunicationUtils.announceTagID;
 import static utils.CommunicationUtils.awaitRequests;
-import static utils.CommunicationUtils.prepareToSendInteger;
-import static utils.CommunicationUtils.prepareToSendKey;
-import static utils.CommunicationUtils.prepareToSendStatusString;
+import static utils.CommunicationUtils.getPlasmaEntryFromBuffer;
+import static utils.CommunicationUtils.prepareToSendOperationCode;
 import static utils.CommunicationUtils.receiveAddress;
 import static utils.CommunicationUtils.receiveCount;
-import static utils.CommunicationUtils.receiveHash;
-import static utils.CommunicationUtils.receiveObjectPerRDMA;
-import static utils.CommunicationUtils.receiveStatusCode;
 import static utils.CommunicationUtils.receiveTagIDAsStream;
-import static utils.CommunicationUtils.receiveValuePerRDMA;
-import static utils.CommunicationUtils.sendEntryPerRDMA;
-import static utils.CommunicationUtils.sendStatusCode;
+import static utils.CommunicationUtils.sendOperationCode;
 import static utils.CommunicationUtils.streamTagID;
-import static utils.HashUtils.getResponsibleServerID;
 
 @Slf4j
 public class DPwRClient {
     private static final ContextParameters.Feature[] FEATURE_SET = {ContextParameters.Feature.TAG, ContextParameters.Feature.RMA, ContextParameters.Feature.STREAM};
-    private final Map<Integer, InetSocketAddress> serverMap = new HashMap<>();
-    private final ErrorHandler errorHandler = new DPwRErrorHandler();
-    private InetSocketAddress serverAddress = null;
-    private Integer serverTimeout = null;
-    private Boolean verbose = null;
-    private Context context;
-    private Worker worker;
-    private Endpoint currentEndpoint;
-    private final Map<Integer, Endpoint> endpointMap = new HashMap<>();
-    private int tagID;
+    private static final long DEFAULT_BUFFER_POOL_CAPACITY = 64L * 1024 * 1024;
+    private static final long DEFAULT_BUFFER_POOL_MAX_IDLE_BYTES = 16L * 1024 * 1024;
+    /**
+     * How many listed objects per server may wait for the consumer of {@link #listStream(int)}.
+     */
+    private static final int LIST_PREFETCH = 16;
+    /**
+     * The size in bytes up to which entries travel inline with {@link ProtocolFeature#INLINE_VALUES}, well below the
+     * usual eager limit of UCX so that an inline message never needs a rendezvous.
+     */
+    private static final int DEFAULT_INLINE_THRESHOLD = 4096;
+    /**
+     * The known servers by ID. The map is immutable and replaced as a whole, so readers never see a partial topology.
+     */
+    private volatile Map<Integer, InetSocketAddress> serverMap = Map.of();
+    private final ThreadLocal<WorkerLane> threadLane = new ThreadLocal<>();
+    private final Object workerCreationLock = new Object();
+    private volatile InetSocketAddress serverAddress = null;
+    private volatile Integer serverTimeout = null;
+    private volatile Boolean verbose = null;
+    private volatile Set<ProtocolFeature> protocolFeatures = Collections.emptySet();
+    private volatile long bufferPoolCapacity = DEFAULT_BUFFER_POOL_CAPACITY;
+    private volatile long bufferPoolMaxIdleBytes = DEFAULT_BUFFER_POOL_MAX_IDLE_BYTES;
+    private volatile RegisteredBufferPool bufferPool;
+    private volatile Context context;
+    private volatile Partitioner partitioner = new ModuloPartitioner();
+    private volatile WaitStrategy waitStrategy = WaitStrategy.busySpin();
+    private volatile int pipelineDepth = 1;
+    private volatile boolean eagerConnect = false;
+    private volatile ServerFailurePolicy failurePolicy = ServerFailurePolicy.AWAIT_RECONNECT;
+    private volatile TopologyCache topologyCache = null;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.defaults();
+    private volatile RetryCoordinator retryCoordinator;
+    private volatile NearCache nearCache = null;
+    private volatile int inlineThreshold = DEFAULT_INLINE_THRESHOLD;
+    private final AtomicInteger topologyEpoch = new AtomicInteger();
+    private ProgressLoop progressLoop;
 
     public DPwRClient() {
 
@@ -86,12 +125,164 @@ public class DPwRClient {
         this.verbose = verbose;
     }
 
+    /**
+     * Enables optional protocol extensions. Must be called before {@link #initialize()} and only with features
+     * that every server of the cluster supports.
+     */
+    public void setProtocolFeatures(final Set<ProtocolFeature> protocolFeatures) {
+        final Set<ProtocolFeature> features = EnumSet.noneOf(ProtocolFeature.class);
+        features.addAll(protocolFeatures);
+        this.protocolFeatures = Collections.unmodifiableSet(features);
+    }
+
+    /**
+     * Returns whether the given protocol extension has been enabled with {@link #setProtocolFeatures(Set)}.
+     */
+    public boolean supports(final ProtocolFeature feature) {
+        return this.protocolFeatures.contains(feature);
+    }
+
+    /**
+     * Sets the size of an entry in bytes up to which PUT, RPL and GET transfer it inside of their messages instead
+     * of per RDMA, which is 4096 by default. Only takes effect with {@link ProtocolFeature#INLINE_VALUES}. The entry
+     * includes key, value and the fields the server stores with them. Must be called before {@link #initialize()}.
+     */
+    public void setInlineThreshold(final int inlineThreshold) {
+        if (inlineThreshold < 0) {
+            throw new IllegalArgumentException("The inline threshold must not be negative");
+        }
+        this.inlineThreshold = inlineThreshold;
+    }
+
+    /**
+     * Limits the pool of registered memory that values are transferred from and into. Must be called before
+     * {@link #initialize()}.
+     *
+     * @param capacity     The maximum number of bytes registered at any time. Zero disables the pool.
+     * @param maxIdleBytes The maximum number of registered bytes kept for reuse while no operation needs them.
+     */
+    public void setBufferPoolLimits(final long capacity, final long maxIdleBytes) {
+        this.bufferPoolCapacity = capacity;
+        this.bufferPoolMaxIdleBytes = maxIdleBytes;
+    }
+
+    /**
+     * Returns the current usage of the registered buffer pool, or null if the client is not initialized.
+     */
+    public BufferPoolStatistics getBufferPoolStatistics() {
+        final RegisteredBufferPool pool = this.bufferPool;
+        return pool == null ? null : pool.statistics();
+    }
+
+    /**
+     * Replaces the placement of keys on servers, which is {@link ModuloPartitioner} by default. Must be called before
+     * {@link #initialize()} and all clients of a cluster have to use the same placement.
+     */
+    public void setPartitioner(final Partitioner partitioner) {
+        this.partitioner = partitioner;
+        this.topologyEpoch.incrementAndGet();
+    }
+
+    /**
+     * Sets how threads wait for the network once the worker has nothing to do, which is busy spinning by default.
+     * Must be called before {@link #initialize()}.
+     */
+    public void setWaitStrategy(final WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Sets how many operations of a thread may be in progress on the connection to one server at the same time.
+     * The default of one keeps each connection in lock step. A larger depth only takes effect together with
+     * {@link ProtocolFeature#CLIENT_TAG_IDS} and lets asynchronous and batch operations complete in any order, so
+     * operations on the same key have to wait for each other if their order matters. Must be called before
+     * {@link #initialize()}.
+     */
+    public void setPipelineDepth(final int pipelineDepth) {
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("The pipeline depth must be at least one");
+        }
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Connects every thread to all servers as soon as it first uses the client, instead of connecting to a server
+     * on the first operation routed to it. The connections of a thread are set up in parallel and each one is
+     * flushed once, so the first operations do not pay for the connection setup. Must be called before
+     * {@link #initialize()}.
+     */
+    public void setEagerConnect(final boolean eagerConnect) {
+        this.eagerConnect = eagerConnect;
+    }
+
+    /**
+     * Sets what happens to operations for a server whose connection failed. Failures reported by UCX drop the
+     * connection at once, fail the operations in progress on it, which are retried if they have attempts left, and
+     * start reconnecting in the background with a growing delay. Until a reconnect succeeds, operations for the server
+     * wait for it by default. Must be called before {@link #initialize()}.
+     */
+    public void setServerFailurePolicy(final ServerFailurePolicy failurePolicy) {
+        this.failurePolicy = failurePolicy;
+    }
+
+    /**
+     * Remembers the servers of the cluster in the given file. If the file holds the servers behind the same seed
+     * server and is younger than the maximum age, {@link #initialize()} uses them instead of asking the seed server.
+     * A null file disables the cache. Must be called before {@link #initialize()}.
+     */
+    public void setTopologyCache(final Path file, final Duration maxAge) {
+        this.topologyCache = file == null ? null : new TopologyCache(file, maxAge);
+    }
+
+    /**
+     * Sets when failed attempts are retried and when servers are given a break, which is
+     * {@link RetryPolicy#defaults()} by default. The number of attempts is still passed to every operation. Must be
+     * called before {@link #initialize()}.
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the retry counters since the last {@link #initialize()}, or null if the client is not initialized.
+     */
+    public RetryStatistics getRetryStatistics() {
+        final RetryCoordinator coordinator = this.retryCoordinator;
+        return coordinator == null ? null : coordinator.statistics();
+    }
+
+    /**
+     * Keeps recently read values in the client, see {@link NearCachePolicy}. Reads of cached keys are answered
+     * without contacting the server, and {@link #getInto(DPwRKey, MemorySegment, int)} reads through a heap array
+     * while the cache is enabled. A null policy disables the cache. Must be called before {@link #initialize()}.
+     */
+    public void setNearCache(final NearCachePolicy policy) {
+        this.nearCache = policy == null ? null : new NearCache(policy);
+    }
+
+    /**
+     * Returns the counters of the near cache, or null if it is disabled.
+     */
+    public NearCacheStatistics getNearCacheStatistics() {
+        final NearCache cache = this.nearCache;
+        return cache == null ? null : cache.statistics();
+    }
+
+    public WaitStatistics getWaitStatistics() {
+        return this.waitStrategy.statistics();
+    }
+
     public void initialize() throws NetworkException {
         initialize(10);
     }
 
-    public void initialize(final int maxAttempts) throws NetworkException {
-        if (ObjectUtils.isEmpty(this.serverAddress) || ObjectUtils.isEmpty(this.serverAddress) || ObjectUtils.isEmpty(this.serverAddress)) {
+    /**
+     * Initializes the shared UCX context and fetches the network information from the seed server. A client only
+     * needs to be initialized once and can afterwards be shared by any number of threads, every thread gets its own
+     * worker and endpoints on first use.
+     */
+    public synchronized void initialize(final int maxAttempts) throws NetworkException {
+        if (ObjectUtils.isEmpty(this.serverAddress) || ObjectUtils.isEmpty(this.serverTimeout) || ObjectUtils.isEmpty(this.verbose)) {
             throw new IllegalStateException("Client is not properly set up, either the server address, server timeout or verbose state is missing");
         }
         NativeLogger.enable();
@@ -104,53 +295,93 @@ public class DPwRClient {
 
         // Initialize UCP context
         log.info("Initializing context");
-        final ContextParameters contextParameters = new ContextParameters().setFeatures(FEATURE_SET);
+        final ContextParameters contextParameters = new ContextParameters().setFeatures(contextFeatures());
+        shutdownProgressLoop();
+        final WorkerLane lane;
+        if (this.bufferPool != null) {
+            this.bufferPool.close();
+        }
+        this.serverMap = Map.of();
+        this.retryCoordinator = new RetryCoordinator(this.retryPolicy);
+        if (this.nearCache != null) {
+            this.nearCache.clear();
+        }
         try {
-            this.context = Context.initialize(contextParameters, null);
-
-            // Create a worker
-            log.info("Creating worker");
-            final WorkerParameters workerParameters = new WorkerParameters().setThreadMode(ThreadMode.SINGLE);
-            this.worker = context.createWorker(workerParameters);
+            final Context newContext = Context.initialize(contextParameters, null);
+            this.bufferPool = new RegisteredBufferPool(newContext, bufferPoolCapacity, bufferPoolMaxIdleBytes);
+            this.context = newContext;
+            lane = getLane();
         } catch (final ControlException e) {
             throw new NetworkException(e.getMessage());
         }
 
+        this.serverMap = Map.of(0, serverAddress);
+        this.partitioner.updateServers(this.serverMap);
+        this.topologyEpoch.incrementAndGet();
         try {
-            this.currentEndpoint = establishConnection(this.serverAddress, 0, 5);
-        } catch (final ControlException | TimeoutException e) {
+            lane.establishConnection(this.serverAddress, 0, 5);
+        } catch (final ControlException e) {
             throw new NetworkException(e.getMessage());
         }
-        this.serverMap.put(0, serverAddress);
-        this.endpointMap.put(0, this.currentEndpoint);
-        getNetworkInformation(maxAttempts);
+        final TopologyCache cache = this.topologyCache;
+        final Map<Integer, InetSocketAddress> cachedServers = cache == null ? null : cache.read(this.serverAddress);
+        if (cachedServers != null) {
+            log.info("Using the cached topology");
+            applyTopology(lane, cachedServers, lane.currentEndpoint());
+        } else {
+            getNetworkInformation(maxAttempts);
+            if (cache != null) {
+                cache.write(this.serverAddress, this.serverMap);
+            }
+        }
+        if (this.eagerConnect) {
+            connectAll(lane);
+        }
     }
 
-    private Endpoint establishConnection(final InetSocketAddress serverAddress, final int serverID, final int attempts) throws ControlException, TimeoutException {
-        // Create an endpoint
-        log.info("Creating Endpoint");
-        final EndpointParameters endpointParameters = new EndpointParameters()
-                .setRemoteAddress(serverAddress)
-                .setErrorHandler(this.errorHandler)
-                .enableClientIdentifier();
+    private void connectAll(final WorkerLane lane) {
+        try {
+            lane.connectAll(serverTimeout);
+        } catch (final ControlException | TimeoutException e) {
+            log.warn("Connecting to all servers failed, the remaining connections are set up on first use: {}", e.getMessage());
+        }
+    }
 
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            this.currentEndpoint = this.worker.createEndpoint(endpointParameters);
-            this.endpointMap.put(serverID, this.currentEndpoint);
-        } catch (final ControlException e) {
-            log.error(e.getMessage());
-            if (attempts > 0) {
-                return establishConnection(serverAddress, serverID, attempts - 1);
-            } else {
-                throw e;
-            }
+    private ContextParameters.Feature[] contextFeatures() {
+        if (!this.waitStrategy.awaitsWorker()) {
+            return FEATURE_SET;
         }
-        return this.currentEndpoint;
+        final ContextParameters.Feature[] features = Arrays.copyOf(FEATURE_SET, FEATURE_SET.length + 1);
+        features[FEATURE_SET.length] = ContextParameters.Feature.WAKEUP;
+        return features;
     }
 
-    private Endpoint establishConnection(final int serverID, final int attempts) throws ControlException, TimeoutException {
-        final InetSocketAddress serverAddress = this.serverMap.get(serverID);
-        return establishConnection(serverAddress, serverID, attempts);
+    /**
+     * Returns the lane of the calling thread and creates it if the thread has not used this client yet or the
+     * client was initialized again since.
+     */
+    private WorkerLane getLane() throws ControlException {
+        final Context currentContext = this.context;
+        if (currentContext == null) {
+            throw new IllegalStateException("Client is not initialized");
+        }
+        WorkerLane lane = this.threadLane.get();
+        if (lane != null && lane.context() == currentContext) {
+            return lane;
+        }
+        if (lane != null) {
+            lane.close();
+        }
+        synchronized (workerCreationLock) {
+            lane = new WorkerLane(currentContext, this.bufferPool, () -> this.serverMap, new LaneSettings(this.protocolFeatures,
+                    this.waitStrategy, this.pipelineDepth, this.failurePolicy, this.serverTimeout, this.retryCoordinator,
+                    this.inlineThreshold));
+        }
+        this.threadLane.set(lane);
+        if (this.eagerConnect) {
+            connectAll(lane);
+        }
+        return lane;
     }
 
     private void setLogLevel(final org.apache.logging.log4j.Level level) {
@@ -163,74 +394,243 @@ public class DPwRClient {
 
     private void getNetworkInformation(final int maxAttempts) throws NetworkException {
         try {
-            processRequest("INF", "", new byte[0], maxAttempts);
-        } catch (final DuplicateKeyException | ControlException | TimeoutException | KeyNotFoundException e) {
+            processRequest("INF", "", maxAttempts);
+        } catch (final ControlException | TimeoutException e) {
             throw new NetworkException(e.getMessage());
         }
     }
 
-    private void infOperation() throws TimeoutException {
-        log.info("[{}] Starting INF operation", tagID);
+    private void infOperation(final WorkerLane lane, final int serverID) throws TimeoutException {
+        log.info("[{}] Starting INF operation", lane.tagID());
+        final Map<Integer, InetSocketAddress> servers = new HashMap<>();
         try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
+            final long tagID = requestNewTagID(lane, serverID, scope);
 
-            sendStatusCode(tagID, "INF", currentEndpoint, worker, serverTimeout, scope);
-            final int serverCount = receiveCount(tagID, worker, serverTimeout, scope);
-            this.serverMap.put(0, null);
+            sendOperationCode(tagID, OperationCode.INF, lane.supports(ProtocolFeature.BINARY_CODES), lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+            final int serverCount = receiveCount(tagID, lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+            final boolean binaryAddresses = lane.supports(ProtocolFeature.BINARY_ADDRESSES);
             for (int i = 0; i < serverCount; i++) {
-                final InetSocketAddress serverAddress = receiveAddress(tagID, worker, serverTimeout, scope);
-                this.serverMap.put(i, serverAddress);
-                if (serverAddress.equals(this.serverAddress)) {
-                    this.endpointMap.put(i, this.currentEndpoint);
-                } else {
-                    this.endpointMap.put(i, null);
-                }
+                servers.put(i, receiveAddress(tagID, binaryAddresses, lane.worker(), lane.waitStrategy(), serverTimeout, scope));
             }
         }
-        log.info(this.serverMap.entrySet().toString());
-        log.info("[{}] INF completed", tagID);
+        applyTopology(lane, servers, lane.currentEndpoint());
+        log.info("[{}] INF completed", lane.tagID());
+    }
+
+    /**
+     * Replaces the known servers. The connection to the seed server is kept under its new ID, all other connections
+     * of the lane are dropped and set up again on demand.
+     */
+    private void applyTopology(final WorkerLane lane, final Map<Integer, InetSocketAddress> servers, final Endpoint seedEndpoint) {
+        for (final int id : List.copyOf(lane.endpointIDs())) {
+            if (lane.getEndpoint(id) == seedEndpoint) {
+                lane.putEndpoint(id, null);
+            } else {
+                lane.dropEndpoint(id);
+            }
+        }
+        for (final Map.Entry<Integer, InetSocketAddress> server : servers.entrySet()) {
+            if (server.getValue().equals(this.serverAddress)) {
+                lane.putEndpoint(server.getKey(), seedEndpoint);
+            }
+        }
+        final Map<Integer, InetSocketAddress> newServerMap = Map.copyOf(servers);
+        this.partitioner.updateServers(newServerMap);
+        this.serverMap = newServerMap;
+        this.topologyEpoch.incrementAndGet();
+        log.info(newServerMap.entrySet().toString());
     }
 
     public void put(final String key, final byte[] value, final int maxAttempts) throws NetworkException, DuplicateKeyException {
+        put(DPwRKey.of(key), value, maxAttempts);
+    }
+
+    public void put(final DPwRKey key, final byte[] value, final int maxAttempts) throws NetworkException, DuplicateKeyException {
+        invalidateNearCache(key);
         try {
-            processRequest("PUT", key, value, maxAttempts);
-        } catch (final KeyNotFoundException | ControlException | TimeoutException e) {
+            execute(new PutOperation(key, value, compactEntries(), getResponsibleServerID(key), serverTimeout, maxAttempts));
+        } catch (final KeyNotFoundException | ControlException | TimeoutException | SerializationException e) {
+            throw new NetworkException(e.getMessage());
+        } finally {
+            invalidateNearCache(key);
+        }
+    }
+
+    /**
+     * Stores an object whether or not the key exists. With {@link ProtocolFeature#UPSERT} this is a single RPL
+     * operation that replaces the entry atomically. Otherwise the object is deleted and stored again, so other
+     * clients may briefly miss the key, and a put of another client in between makes the store start over.
+     */
+    public void upsert(final String key, final byte[] value, final int maxAttempts) throws NetworkException {
+        upsert(DPwRKey.of(key), value, maxAttempts);
+    }
+
+    public void upsert(final DPwRKey key, final byte[] value, final int maxAttempts) throws NetworkException {
+        invalidateNearCache(key);
+        try {
+            if (this.protocolFeatures.contains(ProtocolFeature.UPSERT)) {
+                execute(new PutOperation(key, value, compactEntries(), true, getResponsibleServerID(key), serverTimeout, maxAttempts));
+            } else {
+                deleteAndPut(key, value, maxAttempts);
+            }
+        } catch (final KeyNotFoundException | DuplicateKeyException | ControlException | TimeoutException | SerializationException e) {
             throw new NetworkException(e.getMessage());
+        } finally {
+            invalidateNearCache(key);
+        }
+    }
+
+    private void deleteAndPut(final DPwRKey key, final byte[] value, final int maxAttempts) throws KeyNotFoundException, DuplicateKeyException, ControlException, TimeoutException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                execute(new DeleteOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+            } catch (final KeyNotFoundException e) {
+                log.info("[{}] Nothing to replace", key);
+            }
+            try {
+                execute(new PutOperation(key, value, compactEntries(), getResponsibleServerID(key), serverTimeout, maxAttempts));
+                return;
+            } catch (final DuplicateKeyException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("[{}] The key was stored again before the replacement, retrying", key);
+            }
         }
     }
 
     public byte[] get(final String key, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        return get(DPwRKey.of(key), maxAttempts);
+    }
+
+    public byte[] get(final DPwRKey key, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        final NearCache cache = this.nearCache;
+        long version = 0;
+        if (cache != null) {
+            version = cache.version(key);
+            final byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
         final byte[] result;
         try {
-            result = processRequest("GET", key, new byte[0], maxAttempts);
+            result = execute(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
         } catch (final DuplicateKeyException | ControlException | TimeoutException e) {
             e.printStackTrace();
             throw new NetworkException(e.getMessage());
         }
+        if (cache != null) {
+            cache.put(key, result, version);
+        }
         return result;
     }
 
+    /**
+     * Stores a value that lives in off-heap memory. With {@link ProtocolFeature#COMPACT_ENTRIES} the value is written
+     * to the server directly from the given memory, otherwise it is copied into a heap array first.
+     */
+    public void put(final String key, final MemorySegment value, final int maxAttempts) throws NetworkException, DuplicateKeyException {
+        put(DPwRKey.of(key), value, maxAttempts);
+    }
+
+    public void put(final DPwRKey key, final MemorySegment value, final int maxAttempts) throws NetworkException, DuplicateKeyException {
+        if (!compactEntries()) {
+            put(key, value.toArray(ValueLayout.JAVA_BYTE), maxAttempts);
+            return;
+        }
+        invalidateNearCache(key);
+        try {
+            execute(new PutOperation(key, value, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        } catch (final KeyNotFoundException | ControlException | TimeoutException e) {
+            throw new NetworkException(e.getMessage());
+        } finally {
+            invalidateNearCache(key);
+        }
+    }
+
+    /**
+     * Reads a value into off-heap memory. With {@link ProtocolFeature#COMPACT_ENTRIES} the value is read from the
+     * server directly into the target, otherwise it is copied out of a heap array.
+     *
+     * @return The size of the value. If it is larger than the target, the target is left untouched.
+     */
+    public long getInto(final String key, final MemorySegment target, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        return getInto(DPwRKey.of(key), target, maxAttempts);
+    }
+
+    public long getInto(final DPwRKey key, final MemorySegment target, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        if (!compactEntries() || this.nearCache != null) {
+            final byte[] value = get(key, maxAttempts);
+            if (value.length <= target.byteSize()) {
+                target.copyFrom(MemorySegment.ofArray(value));
+            }
+            return value.length;
+        }
+        try {
+            return execute(new GetIntoOperation(key, target, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        } catch (final DuplicateKeyException | ControlException | TimeoutException e) {
+            throw new NetworkException(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a value into a direct buffer, starting at its position. If the value fits between position and limit,
+     * the position is advanced past it, otherwise the buffer is left untouched.
+     *
+     * @return The size of the value.
+     */
+    public int get(final String key, final ByteBuffer directTarget, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        return get(DPwRKey.of(key), directTarget, maxAttempts);
+    }
+
+    public int get(final DPwRKey key, final ByteBuffer directTarget, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        if (!directTarget.isDirect()) {
+            throw new IllegalArgumentException("The target buffer must be direct");
+        }
+        final int valueLength = Math.toIntExact(getInto(key, MemorySegment.ofByteBuffer(directTarget), maxAttempts));
+        if (valueLength <= directTarget.remaining()) {
+            directTarget.position(directTarget.position() + valueLength);
+        }
+        return valueLength;
+    }
+
     public void del(final String key, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        del(DPwRKey.of(key), maxAttempts);
+    }
+
+    public void del(final DPwRKey key, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        invalidateNearCache(key);
         try {
-            processRequest("DEL", key, new byte[0], maxAttempts);
+            execute(new DeleteOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
         } catch (final DuplicateKeyException | ControlException | TimeoutException e) {
             throw new NetworkException(e.getMessage());
+        } finally {
+            invalidateNearCache(key);
         }
     }
 
+    /**
+     * Sends BYE to every server the calling thread is connected to. Also stops the progress loop of the
+     * asynchronous operations, a later asynchronous call starts a new one.
+     */
     public void closeConnection() {
+        shutdownProgressLoop();
         try {
-            processRequest("BYE", "", new byte[0], 1);
-        } catch (final DuplicateKeyException | ControlException | TimeoutException | KeyNotFoundException e) {
+            processRequest("BYE", "", 1);
+        } catch (final ControlException | TimeoutException e) {
             log.warn(e.getMessage());
         }
     }
 
     public boolean contains(final String key, final int maxAttempts) throws ControlException, TimeoutException {
+        return contains(DPwRKey.of(key), maxAttempts);
+    }
+
+    public boolean contains(final DPwRKey key, final int maxAttempts) throws ControlException, TimeoutException {
         boolean contains = false;
         try {
-            final byte[] result = processRequest("CNT", key, new byte[0], maxAttempts);
-            contains = Arrays.equals(result, new byte[1]);
+            contains = execute(new ContainsOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
         } catch (final DuplicateKeyException | KeyNotFoundException e) {
             log.error(e.getMessage());
         }
@@ -238,304 +638,568 @@ public class DPwRClient {
     }
 
     public byte[] hash(final String key, final int maxAttempts) throws KeyNotFoundException, ControlException, TimeoutException {
+        return hash(DPwRKey.of(key), maxAttempts);
+    }
+
+    public byte[] hash(final DPwRKey key, final int maxAttempts) throws KeyNotFoundException, ControlException, TimeoutException {
         byte[] result = new byte[0];
         try {
-            result = processRequest("HSH", key, new byte[0], maxAttempts);
+            result = execute(new HashOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
         } catch (final DuplicateKeyException e) {
             log.error(e.getMessage());
         }
         return result;
     }
 
+    /**
+     * Revalidates a copy of an object the caller already has. Only the hash of the object is requested first, the
+     * value itself is only transferred if the hash differs from the known one. The hash is requested before the
+     * value, so a value that changed in between is returned with the older hash and the next call fetches it again
+     * instead of wrongly reporting it as unchanged. Reads bypass the near cache.
+     *
+     * @param knownHash The hash of the caller's copy, as returned by {@link #hash(DPwRKey, int)} or a previous call.
+     */
+    public ConditionalValue getIfChanged(final String key, final byte[] knownHash, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        return getIfChanged(DPwRKey.of(key), knownHash, maxAttempts);
+    }
+
+    public ConditionalValue getIfChanged(final DPwRKey key, final byte[] knownHash, final int maxAttempts) throws NetworkException, KeyNotFoundException {
+        try {
+            final byte[] hash = execute(new HashOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+            if (Arrays.equals(hash, knownHash)) {
+                return ConditionalValue.unchanged(hash);
+            }
+            invalidateNearCache(key);
+            return new ConditionalValue(true, execute(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts)), hash);
+        } catch (final DuplicateKeyException | ControlException | TimeoutException e) {
+            throw new NetworkException(e.getMessage());
+        }
+    }
+
     public List<byte[]> list(final int maxAttempts) throws ControlException, TimeoutException, NetworkException {
         return processListRequest(maxAttempts);
     }
 
-    private byte[] processRequest(final String operationName, final String key, final byte[] value, final int maxAttempts) throws KeyNotFoundException, ControlException, TimeoutException, DuplicateKeyException {
-        final int responsibleServerID = getResponsibleServerID(key, this.serverMap.size());
-        this.currentEndpoint = getOrCreateEndpoint(responsibleServerID);
+    /**
+     * Lists the objects of all servers as they arrive over the existing connections of the calling thread. The
+     * servers are only listed in parallel with {@link ProtocolFeature#CLIENT_TAG_IDS}, otherwise one after another.
+     * Only a few objects per server are read ahead, and a server is held back while its objects are not consumed, so
+     * memory use does not grow with the size of the store.
+     * <p>
+     * The stream must be consumed by the calling thread and should be closed, which lets the listings that are
+     * still running finish without reading their remaining entries. If the listing of a server fails, the stream
+     * throws a {@link CompletionException} with a {@link NetworkException} as its cause. While the stream is open,
+     * other blocking operations and listings of the calling thread throw an {@link IllegalStateException}, because
+     * a held back server would keep them from completing.
+     */
+    public Stream<byte[]> listStream(final int maxAttempts) throws NetworkException {
+        return openListing(new byte[0], maxAttempts);
+    }
+
+    /**
+     * Lists the entries whose key starts with the given prefix, see {@link #listStream(int)}. With
+     * {@link ProtocolFeature#PREFIX_LISTING} the servers only send matching entries, otherwise all entries are
+     * transferred and filtered by the client. The entries arrive in no particular order.
+     */
+    public Stream<PlasmaEntry> listStream(final String prefix, final int maxAttempts) throws NetworkException {
+        return openListing(prefix.getBytes(StandardCharsets.UTF_8), maxAttempts)
+                .map(this::decodeEntry)
+                .filter(entry -> entry.key.startsWith(prefix));
+    }
 
-        // lookup in server endpoint map
-        boolean retry = false;
-        byte[] result = new byte[0];
+    private PlasmaEntry decodeEntry(final byte[] object) {
+        final ByteBuffer buffer = ByteBuffer.wrap(object);
+        return compactEntries() ? PlasmaEntry.readCompact(buffer) : getPlasmaEntryFromBuffer(buffer);
+    }
+
+    private Stream<byte[]> openListing(final byte[] prefix, final int maxAttempts) throws NetworkException {
+        final WorkerLane lane;
         try {
-            switch (operationName) {
-                case "PUT" -> putOperation(key, value);
-                case "GET" -> result = getOperation(key);
-                case "DEL" -> deleteOperation(key);
-                case "CNT" -> result = containsOperation(key);
-                case "HSH" -> result = hashOperation(key);
-                case "BYE" -> closeConnectionOperation();
-                case "INF" -> infOperation();
-            }
-        } catch (final TimeoutException | SerializationException e) {
-            log.warn(e.getMessage());
-            if (maxAttempts > 1) {
-                retry = true;
-            } else {
-                throw new TimeoutException(e.getMessage());
-            }
+            lane = getLane();
+        } catch (final ControlException e) {
+            throw new NetworkException(e.getMessage());
         }
-        if (retry) {
-            log.warn("Retry " + operationName);
-            this.endpointMap.put(responsibleServerID, null);
-            return processRequest(operationName, key, value, maxAttempts - 1);
+        lane.checkNoOpenCursor();
+        final List<ListOperation> operations = new ArrayList<>();
+        for (final int serverID : this.serverMap.keySet()) {
+            final ListOperation operation = new ListOperation(serverID, prefix, LIST_PREFETCH, serverTimeout, maxAttempts);
+            operations.add(operation);
+            lane.submit(operation);
         }
-        return result;
+        final ListCursor cursor = new ListCursor(lane, operations);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL), false)
+                .onClose(cursor::close);
     }
 
-    private Endpoint getOrCreateEndpoint(final int responsibleServerID) throws ControlException, TimeoutException {
-        Endpoint endpoint = this.endpointMap.get(responsibleServerID);
-        if (endpoint != null) {
-            return endpoint;
+    /**
+     * Retrieves many objects at once. The keys are grouped by their server, all servers are served in parallel and
+     * the requests for one server are sent back to back. Keys found in the near cache are not requested.
+     *
+     * @return The result of every key in the order of the given keys.
+     */
+    public List<KeyResult<byte[]>> multiGet(final List<DPwRKey> keys, final int maxAttempts) throws NetworkException {
+        final NearCache cache = this.nearCache;
+        final List<KeyResult<byte[]>> results = new ArrayList<>(keys.size());
+        final List<DPwRKey> missingKeys = new ArrayList<>(keys.size());
+        final List<Operation<byte[]>> operations = new ArrayList<>(keys.size());
+        final long[] versions = new long[keys.size()];
+        for (final DPwRKey key : keys) {
+            if (cache != null) {
+                versions[missingKeys.size()] = cache.version(key);
+                final byte[] cached = cache.get(key);
+                if (cached != null) {
+                    results.add(new KeyResult<>(key, KeyStatus.OK, cached));
+                    continue;
+                }
+            }
+            results.add(null);
+            missingKeys.add(key);
+            operations.add(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
         }
-        endpoint = establishConnection(responsibleServerID, 5);
-        return endpoint;
+        final List<KeyResult<byte[]>> fetched = cacheResults(executeAll(missingKeys, operations), versions);
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, fetched.get(next++));
+            }
+        }
+        return results;
     }
 
-    public List<byte[]> processListRequest(int maxAttempts) throws ControlException, TimeoutException, NetworkException {
-        closeConnectionOperation();
-        final ArrayList<byte[]> result = new ArrayList<>();
-        for (final int serverID : this.serverMap.keySet()) {
-            log.info("Contacting server with ID {}", serverID);
-            boolean retry = true;
-            while (retry && maxAttempts >= 1) {
-                retry = false;
-                this.currentEndpoint = getOrCreateEndpoint(serverID);
-                try {
-                    result.addAll(listOperation(currentEndpoint));
-                    closeConnectionOperation();
-                } catch (final TimeoutException e) {
-                    if (maxAttempts > 1) {
-                        retry = true;
-                        this.endpointMap.put(serverID, null);
-                        maxAttempts = maxAttempts - 1;
-                    }
+    private List<KeyResult<byte[]>> cacheResults(final List<KeyResult<byte[]>> results, final long[] versions) {
+        final NearCache cache = this.nearCache;
+        if (cache != null) {
+            for (int i = 0; i < results.size(); i++) {
+                final KeyResult<byte[]> result = results.get(i);
+                if (result.isOk()) {
+                    cache.put(result.key(), result.value(), versions[i]);
                 }
             }
-            if (maxAttempts == 0) {
-                throw new NetworkException("Connection lost");
+        }
+        return results;
+    }
+
+    /**
+     * Stores many objects at once, see {@link #multiGet(List, int)}.
+     *
+     * @return The result of every key in the iteration order of the given map.
+     */
+    public List<KeyResult<Void>> multiPut(final Map<DPwRKey, byte[]> entries, final int maxAttempts) throws NetworkException {
+        final List<DPwRKey> keys = new ArrayList<>(entries.size());
+        final List<Operation<Void>> operations = new ArrayList<>(entries.size());
+        for (final Map.Entry<DPwRKey, byte[]> entry : entries.entrySet()) {
+            final DPwRKey key = entry.getKey();
+            keys.add(key);
+            try {
+                operations.add(new PutOperation(key, entry.getValue(), compactEntries(), getResponsibleServerID(key), serverTimeout, maxAttempts));
+            } catch (final SerializationException e) {
+                log.error(e.getMessage());
+                operations.add(null);
             }
         }
-        return result;
+        keys.forEach(this::invalidateNearCache);
+        try {
+            return executeAll(keys, operations);
+        } finally {
+            keys.forEach(this::invalidateNearCache);
+        }
     }
 
-    private void putOperation(final String key, final byte[] value) throws SerializationException, ControlException, DuplicateKeyException, TimeoutException {
-        log.info("[{}] Starting PUT operation", tagID);
-        log.info("[{}] Key {}", tagID, key);
-        final byte[] entryBytes = serialize(new PlasmaEntry(key, value, new byte[20]));
+    /**
+     * Deletes many objects at once, see {@link #multiGet(List, int)}.
+     *
+     * @return The result of every key in the order of the given keys.
+     */
+    public List<KeyResult<Void>> multiDelete(final List<DPwRKey> keys, final int maxAttempts) throws NetworkException {
+        final List<Operation<Void>> operations = new ArrayList<>(keys.size());
+        for (final DPwRKey key : keys) {
+            operations.add(new DeleteOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        }
+        keys.forEach(this::invalidateNearCache);
+        try {
+            return executeAll(keys, operations);
+        } finally {
+            keys.forEach(this::invalidateNearCache);
+        }
+    }
 
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
-
-            final long[] requests = new long[4];
-            requests[0] = prepareToSendStatusString(tagID, "PUT", currentEndpoint, scope);
-            final long[] requests_tmp = prepareToSendKey(tagID, key, currentEndpoint, scope);
-            requests[1] = requests_tmp[0];
-            requests[2] = requests_tmp[1];
-            requests[3] = prepareToSendInteger(tagID, entryBytes.length, currentEndpoint, scope);
-
-            awaitRequests(requests, worker, serverTimeout);
-
-            final String statusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-
-            switch (statusCode) {
-                case "200" -> {
-                    sendEntryPerRDMA(tagID, entryBytes, worker, currentEndpoint, serverTimeout, scope);
-                    sendStatusCode(tagID, "201", currentEndpoint, worker, serverTimeout, scope);
-                    final String resultStatusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-                    switch (resultStatusCode) {
-                        case "202" -> log.info("[{}] Success", tagID);
-                        case "401", "402", "403", "404", "405" -> throw new TimeoutException("Something went wrong");
-                        default -> throw new TimeoutException("Wrong status code: " + statusCode);
-                    }
-                }
-                case "400" ->
-                        throw new DuplicateKeyException("An object with that key was already in the plasma store");
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
+    /**
+     * Checks for many objects at once whether they exist, see {@link #multiGet(List, int)}.
+     *
+     * @return The result of every key in the order of the given keys.
+     */
+    public List<KeyResult<Boolean>> multiContains(final List<DPwRKey> keys, final int maxAttempts) throws NetworkException {
+        final List<Operation<Boolean>> operations = new ArrayList<>(keys.size());
+        for (final DPwRKey key : keys) {
+            operations.add(new ContainsOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        }
+        return executeAll(keys, operations);
+    }
+
+    /**
+     * Revalidates many objects at once, see {@link #getIfChanged(DPwRKey, byte[], int)}. The hashes of all keys are
+     * requested as one batch, followed by one batch with the values of the changed objects.
+     *
+     * @param knownHashes The hash of the caller's copy of every key.
+     * @return The result of every key in the iteration order of the given map.
+     */
+    public List<KeyResult<ConditionalValue>> multiGetIfChanged(final Map<DPwRKey, byte[]> knownHashes, final int maxAttempts) throws NetworkException {
+        final List<DPwRKey> keys = new ArrayList<>(knownHashes.keySet());
+        final List<Operation<byte[]>> hashOperations = new ArrayList<>(keys.size());
+        for (final DPwRKey key : keys) {
+            hashOperations.add(new HashOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        }
+        final List<KeyResult<byte[]>> hashes = executeAll(keys, hashOperations);
+        final List<KeyResult<ConditionalValue>> results = new ArrayList<>(keys.size());
+        final List<DPwRKey> changedKeys = new ArrayList<>();
+        final List<Operation<byte[]>> getOperations = new ArrayList<>();
+        for (final KeyResult<byte[]> hash : hashes) {
+            final DPwRKey key = hash.key();
+            if (!hash.isOk()) {
+                results.add(new KeyResult<>(key, hash.status(), null));
+            } else if (Arrays.equals(hash.value(), knownHashes.get(key))) {
+                results.add(new KeyResult<>(key, KeyStatus.OK, ConditionalValue.unchanged(hash.value())));
+            } else {
+                results.add(null);
+                changedKeys.add(key);
+                invalidateNearCache(key);
+                getOperations.add(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
             }
         }
-        log.info("[{}] Put completed", tagID);
+        final List<KeyResult<byte[]>> values = executeAll(changedKeys, getOperations);
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                final KeyResult<byte[]> value = values.get(next++);
+                results.set(i, new KeyResult<>(value.key(), value.status(),
+                        value.isOk() ? new ConditionalValue(true, value.value(), hashes.get(i).value()) : null));
+            }
+        }
+        return results;
     }
 
-    private void requestNewTagID(final ResourceScope scope) throws TimeoutException {
-        streamTagID(tagID, currentEndpoint, worker, serverTimeout, scope);
-        this.tagID = receiveTagIDAsStream(this.currentEndpoint, this.worker, serverTimeout, scope);
+    /**
+     * Stores an object without blocking the calling thread.
+     *
+     * @return A future that completes once the server stored the object. It fails with a
+     * {@link DuplicateKeyException} if the key already exists and with a {@link NetworkException} if the
+     * operation did not succeed in the given number of attempts.
+     */
+    public CompletableFuture<Void> putAsync(final String key, final byte[] value, final int maxAttempts) {
+        return putAsync(DPwRKey.of(key), value, maxAttempts);
     }
 
-    private byte[] getOperation(final String key) throws ControlException, KeyNotFoundException, TimeoutException, SerializationException {
-        log.info("[{}] Starting GET operation", tagID);
-        log.info("[{}] Key {}", tagID, key);
-        final byte[] value;
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
+    public CompletableFuture<Void> putAsync(final DPwRKey key, final byte[] value, final int maxAttempts) {
+        final PutOperation operation;
+        try {
+            operation = new PutOperation(key, value, compactEntries(), getResponsibleServerID(key), serverTimeout, maxAttempts);
+        } catch (final SerializationException e) {
+            return CompletableFuture.failedFuture(new NetworkException(e.getMessage()));
+        }
+        invalidateNearCache(key);
+        return submit(operation).whenComplete((result, throwable) -> invalidateNearCache(key));
+    }
 
-            final long[] requests = new long[3];
-            requests[0] = prepareToSendStatusString(tagID, "GET", currentEndpoint, scope);
-            final long[] requests_tmp = prepareToSendKey(tagID, key, currentEndpoint, scope);
-            requests[1] = requests_tmp[0];
-            requests[2] = requests_tmp[1];
+    /**
+     * Retrieves an object without blocking the calling thread.
+     *
+     * @return A future with the object. It fails with a {@link KeyNotFoundException} if the key does not exist and
+     * with a {@link NetworkException} if the operation did not succeed in the given number of attempts.
+     */
+    public CompletableFuture<byte[]> getAsync(final String key, final int maxAttempts) {
+        return getAsync(DPwRKey.of(key), maxAttempts);
+    }
 
-            awaitRequests(requests, worker, serverTimeout);
+    public CompletableFuture<byte[]> getAsync(final DPwRKey key, final int maxAttempts) {
+        final NearCache cache = this.nearCache;
+        if (cache == null) {
+            return submit(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+        }
+        final long version = cache.version(key);
+        final byte[] cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return submit(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts)).thenApply(value -> {
+            cache.put(key, value, version);
+            return value;
+        });
+    }
 
-            final String statusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-            switch (statusCode) {
-                case "211" -> {
-                    value = receiveValuePerRDMA(tagID, currentEndpoint, worker, serverTimeout, scope);
-                    sendStatusCode(tagID, "212", currentEndpoint, worker, serverTimeout, scope);
-                }
-                case "411" ->
-                        throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
-            }
+    /**
+     * Deletes an object without blocking the calling thread.
+     *
+     * @return A future that completes once the object was deleted. It fails with a {@link KeyNotFoundException} if
+     * the key does not exist and with a {@link NetworkException} if the operation did not succeed in the given
+     * number of attempts.
+     */
+    public CompletableFuture<Void> delAsync(final String key, final int maxAttempts) {
+        return delAsync(DPwRKey.of(key), maxAttempts);
+    }
 
-            final String resultStatusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-            switch (resultStatusCode) {
-                case "213" -> log.info("[{}] Success", tagID);
-                case "412" -> throw new TimeoutException("Something went wrong");
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
-            }
-        }
-        log.info("[{}] Get completed", tagID);
-        return value;
+    public CompletableFuture<Void> delAsync(final DPwRKey key, final int maxAttempts) {
+        invalidateNearCache(key);
+        return submit(new DeleteOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts))
+                .whenComplete((result, throwable) -> invalidateNearCache(key));
     }
 
-    private void deleteOperation(final String key) throws KeyNotFoundException, TimeoutException {
-        log.info("Starting DEL operation");
-        final long[] requests = new long[3];
+    /**
+     * Checks without blocking the calling thread whether an object exists.
+     *
+     * @return A future with the result. It fails with a {@link NetworkException} if the operation did not succeed
+     * in the given number of attempts.
+     */
+    public CompletableFuture<Boolean> containsAsync(final String key, final int maxAttempts) {
+        return containsAsync(DPwRKey.of(key), maxAttempts);
+    }
 
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
+    public CompletableFuture<Boolean> containsAsync(final DPwRKey key, final int maxAttempts) {
+        return submit(new ContainsOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+    }
 
-            requests[0] = prepareToSendStatusString(tagID, "DEL", currentEndpoint, scope);
-            final long[] requests_tmp = prepareToSendKey(tagID, key, currentEndpoint, scope);
-            requests[1] = requests_tmp[0];
-            requests[2] = requests_tmp[1];
+    /**
+     * Retrieves the hash of an object without blocking the calling thread.
+     *
+     * @return A future with the hash. It fails with a {@link KeyNotFoundException} if the key does not exist and
+     * with a {@link NetworkException} if the operation did not succeed in the given number of attempts.
+     */
+    public CompletableFuture<byte[]> hashAsync(final String key, final int maxAttempts) {
+        return hashAsync(DPwRKey.of(key), maxAttempts);
+    }
 
-            awaitRequests(requests, worker, serverTimeout);
+    public CompletableFuture<byte[]> hashAsync(final DPwRKey key, final int maxAttempts) {
+        return submit(new HashOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts));
+    }
+
+    /**
+     * Revalidates a copy of an object without blocking the calling thread, see
+     * {@link #getIfChanged(DPwRKey, byte[], int)}.
+     */
+    public CompletableFuture<ConditionalValue> getIfChangedAsync(final DPwRKey key, final byte[] knownHash, final int maxAttempts) {
+        return submit(new HashOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts)).thenCompose(hash -> {
+            if (Arrays.equals(hash, knownHash)) {
+                return CompletableFuture.completedFuture(ConditionalValue.unchanged(hash));
+            }
+            invalidateNearCache(key);
+            return submit(new GetOperation(key, getResponsibleServerID(key), serverTimeout, maxAttempts))
+                    .thenApply(value -> new ConditionalValue(true, value, hash));
+        });
+    }
 
-            final String statusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-            switch (statusCode) {
-                case "221" -> log.info("Success");
-                case "421" ->
-                        throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
+    /**
+     * Routes the key, reusing the server ID cached in the key as long as neither the servers nor the partitioner
+     * changed since.
+     */
+    private int getResponsibleServerID(final DPwRKey key) {
+        final int epoch = this.topologyEpoch.get();
+        int serverID = key.cachedServerID(epoch);
+        if (serverID < 0) {
+            serverID = this.partitioner.getResponsibleServerID(key.bytes(), this.serverMap.size());
+            if (serverID >= 0) {
+                key.cacheServerID(epoch, serverID);
             }
         }
-        log.info("Del completed");
+        return serverID;
     }
 
-    private byte[] containsOperation(final String key) throws TimeoutException {
-        log.info("Starting CNT operation");
-        final byte[] result;
-        final long[] requests = new long[3];
+    /**
+     * Drops the key from the near cache. Writes call this before they start and after they finished, so that
+     * neither a cached value nor a read that overlapped the write outlives it.
+     */
+    private void invalidateNearCache(final DPwRKey key) {
+        final NearCache cache = this.nearCache;
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
 
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
+    private boolean compactEntries() {
+        return this.protocolFeatures.contains(ProtocolFeature.COMPACT_ENTRIES);
+    }
 
-            requests[0] = prepareToSendStatusString(tagID, "CNT", currentEndpoint, scope);
-            final long[] requests_tmp = prepareToSendKey(tagID, key, currentEndpoint, scope);
-            requests[1] = requests_tmp[0];
-            requests[2] = requests_tmp[1];
+    /**
+     * Runs the operation on the lane of the calling thread and drives the worker until it is done.
+     */
+    private <T> T execute(final Operation<T> operation) throws KeyNotFoundException, DuplicateKeyException, ControlException, TimeoutException {
+        final WorkerLane lane = getLane();
+        lane.checkNoOpenCursor();
+        lane.submit(operation);
+        awaitCompletion(lane, operation, 0);
+        return operation.result();
+    }
 
-            awaitRequests(requests, worker, serverTimeout);
+    /**
+     * Runs all operations on the lane of the calling thread, which keeps every server busy with its share of them.
+     * A null operation stands for a key whose operation could not even be created.
+     */
+    private <T> List<KeyResult<T>> executeAll(final List<DPwRKey> keys, final List<Operation<T>> operations) throws NetworkException {
+        final WorkerLane lane;
+        try {
+            lane = getLane();
+        } catch (final ControlException e) {
+            throw new NetworkException(e.getMessage());
+        }
+        lane.checkNoOpenCursor();
+        for (final Operation<T> operation : operations) {
+            if (operation != null) {
+                lane.submit(operation);
+            }
+        }
+        int idleRounds = 0;
+        for (final Operation<T> operation : operations) {
+            if (operation != null) {
+                idleRounds = awaitCompletion(lane, operation, idleRounds);
+            }
+        }
+        final List<KeyResult<T>> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(toKeyResult(keys.get(i), operations.get(i)));
+        }
+        return results;
+    }
 
-            final String statusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
+    private static <T> KeyResult<T> toKeyResult(final DPwRKey key, final Operation<T> operation) {
+        if (operation == null) {
+            return new KeyResult<>(key, KeyStatus.FAILED, null);
+        }
+        try {
+            return new KeyResult<>(key, KeyStatus.OK, operation.result());
+        } catch (final KeyNotFoundException e) {
+            return new KeyResult<>(key, KeyStatus.NOT_FOUND, null);
+        } catch (final DuplicateKeyException e) {
+            return new KeyResult<>(key, KeyStatus.DUPLICATE_KEY, null);
+        } catch (final ControlException | TimeoutException e) {
+            log.warn("[{}] {}", key, e.getMessage());
+            return new KeyResult<>(key, KeyStatus.FAILED, null);
+        }
+    }
 
-            switch (statusCode) {
-                case ("231") -> result = new byte[1];
-                case ("431") -> result = new byte[0];
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
+    /**
+     * Polls the lane until the operation is done, waiting according to the wait strategy while nothing happens.
+     *
+     * @return The number of idle polls at the end, to be passed on when awaiting the next operation of a batch.
+     */
+    private static int awaitCompletion(final WorkerLane lane, final Operation<?> operation, final int idleRounds) {
+        int rounds = idleRounds;
+        while (!operation.isDone()) {
+            lane.poll();
+            if (!operation.isDone()) {
+                rounds = lane.idle(rounds);
             }
         }
-        log.info("CNT completed");
-        return result;
+        return rounds;
     }
 
-    private byte[] hashOperation(final String key) throws KeyNotFoundException, TimeoutException {
-        log.info("Starting HSH operation");
-        final byte[] result;
-        final long[] requests = new long[3];
-
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
+    /**
+     * Hands the operation to the progress loop. Timeouts and UCX errors are reported as {@link NetworkException}.
+     */
+    private <T> CompletableFuture<T> submit(final Operation<T> operation) {
+        getProgressLoop().submit(operation);
+        return operation.future().exceptionallyCompose(throwable -> {
+            final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause instanceof TimeoutException || cause instanceof ControlException) {
+                return CompletableFuture.failedFuture(new NetworkException(cause.getMessage()));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
 
-            requests[0] = prepareToSendStatusString(tagID, "HSH", currentEndpoint, scope);
-            final long[] requests_tmp = prepareToSendKey(tagID, key, currentEndpoint, scope);
-            requests[1] = requests_tmp[0];
-            requests[2] = requests_tmp[1];
+    private synchronized ProgressLoop getProgressLoop() {
+        if (this.progressLoop == null) {
+            this.progressLoop = new ProgressLoop(this::getLane, this::shutdownLane);
+        }
+        return this.progressLoop;
+    }
 
-            awaitRequests(requests, worker, serverTimeout);
+    private void shutdownProgressLoop() {
+        final ProgressLoop loop;
+        synchronized (this) {
+            loop = this.progressLoop;
+            this.progressLoop = null;
+        }
+        if (loop != null) {
+            loop.shutdown();
+        }
+    }
 
-            final String statusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
+    private void shutdownLane(final WorkerLane lane) {
+        try {
+            closeConnectionOperation(lane);
+        } catch (final TimeoutException e) {
+            log.warn(e.getMessage());
+        }
+        lane.close();
+    }
 
-            switch (statusCode) {
-                case ("241") -> log.info("Success");
-                case ("441") ->
-                        throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
-                default -> throw new TimeoutException("Wrong status code: " + statusCode);
+    private void processRequest(final String operationName, final String key, final int maxAttempts) throws ControlException, TimeoutException {
+        final WorkerLane lane = getLane();
+        final int responsibleServerID = this.partitioner.getResponsibleServerID(key, this.serverMap.size());
+        final RetryPolicy policy = this.retryPolicy;
+        for (int attempt = 1; ; attempt++) {
+            lane.setCurrentEndpoint(lane.getOrCreateEndpoint(responsibleServerID));
+            try {
+                switch (operationName) {
+                    case "BYE" -> closeConnectionOperation(lane);
+                    case "INF" -> infOperation(lane, responsibleServerID);
+                }
+                return;
+            } catch (final TimeoutException | SerializationException e) {
+                log.warn(e.getMessage());
+                if (attempt >= maxAttempts || !policy.isRetryable(e)) {
+                    throw new TimeoutException(e.getMessage());
+                }
             }
+            log.warn("Retry " + operationName);
+            lane.abandonConnection(responsibleServerID);
+            LockSupport.parkNanos(policy.backoffNanos(attempt));
+        }
+    }
 
-            result = receiveHash(tagID, worker, serverTimeout, scope);
-            final String resultStatusCode = receiveStatusCode(tagID, worker, serverTimeout, scope);
-
-            if ("242".equals(resultStatusCode)) {
-                log.info("Success");
-            } else {
-                throw new TimeoutException("Wrong status code: " + statusCode);
+    public List<byte[]> processListRequest(final int maxAttempts) throws ControlException, TimeoutException, NetworkException {
+        try (final Stream<byte[]> objects = listStream(maxAttempts)) {
+            return objects.collect(Collectors.toCollection(ArrayList::new));
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof NetworkException networkException) {
+                throw networkException;
             }
+            throw e;
         }
-        log.info("HSH completed");
-        return result;
     }
 
-    private void closeConnectionOperation() throws TimeoutException {
+    private long requestNewTagID(final WorkerLane lane, final int serverID, final ResourceScope scope) throws TimeoutException {
+        if (!lane.supports(ProtocolFeature.CLIENT_TAG_IDS)) {
+            streamTagID(lane.tagID(), lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+            lane.setTagID(receiveTagIDAsStream(lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope));
+            return lane.tagID();
+        }
+        TagAllocator allocator = lane.tagAllocator(serverID);
+        if (allocator == null) {
+            announceTagID(0, lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+            final int leasedTagID = receiveTagIDAsStream(lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+            allocator = lane.leaseTagAllocator(serverID, leasedTagID);
+        }
+        final long tagID = allocator.next();
+        announceTagID(tagID, lane.currentEndpoint(), lane.worker(), lane.waitStrategy(), serverTimeout, scope);
+        return tagID;
+    }
+
+    private void closeConnectionOperation(final WorkerLane lane) throws TimeoutException {
         log.info("Starting BYE operation");
-        for (final int id : this.endpointMap.keySet()) {
-            this.currentEndpoint = this.endpointMap.get(id);
-            if (this.currentEndpoint != null) {
+        for (final int id : lane.endpointIDs()) {
+            lane.setCurrentEndpoint(lane.getEndpoint(id));
+            if (lane.currentEndpoint() != null) {
                 try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-                    requestNewTagID(scope);
-                    final long request = prepareToSendStatusString(tagID, "BYE", this.currentEndpoint, scope);
-                    awaitRequests(new long[]{request}, worker, serverTimeout);
+                    final long tagID = requestNewTagID(lane, id, scope);
+                    final long request = prepareToSendOperationCode(tagID, OperationCode.BYE, lane.supports(ProtocolFeature.BINARY_CODES), lane.currentEndpoint(), SegmentAllocator.nativeAllocator(scope));
+                    awaitRequests(new long[]{request}, lane.worker(), lane.waitStrategy(), serverTimeout);
                 } catch (final Exception e) {
                     log.warn(e.getMessage());
-                    this.currentEndpoint.close();
+                    lane.currentEndpoint().close();
                 } finally {
-                    this.endpointMap.put(id, null);
+                    lane.putEndpoint(id, null);
                 }
             }
         }
         log.info("BYE completed");
     }
-
-    private List<byte[]> listOperation(final Endpoint endpoint) throws TimeoutException, ControlException {
-        log.info("Starting LST operation");
-        final ArrayList<byte[]> result;
-        try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
-            requestNewTagID(scope);
-
-            final long request = prepareToSendStatusString(tagID, "LST", endpoint, scope);
-            awaitRequests(new long[]{request}, worker, serverTimeout);
-
-            result = new ArrayList<>();
-            final int count = receiveCount(tagID, worker, serverTimeout, scope);
-            for (int i = 0; i < count; i++) {
-                result.add(receiveObjectPerRDMA(tagID, endpoint, worker, serverTimeout, scope));
-                sendStatusCode(tagID, "251", endpoint, worker, serverTimeout, scope);
-            }
-        }
-        log.info("LST completed");
-        return result;
-    }
-
-    private void resetWorker() {
-        this.worker.close();
-        final WorkerParameters workerParameters = new WorkerParameters().setThreadMode(ThreadMode.SINGLE);
-        try {
-            this.worker = context.createWorker(workerParameters);
-        } catch (final ControlException e) {
-            e.printStackTrace();
-        }
-    }
 }
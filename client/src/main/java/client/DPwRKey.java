@@ -0,0 +1,86 @@
+package client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A key that is prepared for repeated use with a {@link DPwRClient}.
+ * <p>
+ * The UTF-8 encoding of the key is computed once, and the client remembers the responsible server in the key until
+ * the cluster topology or the partitioner changes. Code that accesses the same keys over and over can therefore keep
+ * their {@code DPwRKey}s to skip encoding and hashing on every operation. Keys may be shared between threads.
+ */
+public final class DPwRKey {
+    private static final String NAMESPACE_SEPARATOR = ".";
+
+    private final String key;
+    private final byte[] bytes;
+    private volatile long route = -1;
+
+    public DPwRKey(final String key) {
+        this.key = key;
+        this.bytes = key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the key {@code namespace + "." + key}.
+     */
+    public DPwRKey(final String namespace, final String key) {
+        this(namespace.concat(NAMESPACE_SEPARATOR).concat(key));
+    }
+
+    /**
+     * Returns the prefix all keys of the namespace start with.
+     */
+    public static String namespacePrefix(final String namespace) {
+        return namespace.concat(NAMESPACE_SEPARATOR);
+    }
+
+    public static DPwRKey of(final String key) {
+        return new DPwRKey(key);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of the key. The array is shared and must not be modified.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the server ID cached for the given topology epoch, or -1 if the key was not routed in that epoch yet.
+     */
+    int cachedServerID(final int epoch) {
+        final long currentRoute = route;
+        if (currentRoute == -1 || (int) (currentRoute >>> 32) != epoch) {
+            return -1;
+        }
+        return (int) currentRoute;
+    }
+
+    void cacheServerID(final int epoch, final int serverID) {
+        route = ((long) epoch << 32) | Integer.toUnsignedLong(serverID);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) return true;
+        if (!(o instanceof DPwRKey other)) {
+            return false;
+        }
+        return other.key.equals(key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,40 @@
+package client;
+
+import exceptions.KeyNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import utils.OperationCode;
+
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+final class DeleteOperation extends Operation<Void> {
+    private boolean requestSent;
+
+    DeleteOperation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+    }
+
+    @Override
+    protected void onStart() {
+        requestSent = false;
+    }
+
+    @Override
+    protected void step() throws TimeoutException, KeyNotFoundException {
+        if (!requestSent) {
+            log.info("Starting DEL operation");
+            sendRequest(OperationCode.DEL);
+            requestSent = true;
+            return;
+        }
+        final int statusCode = statusCode();
+        switch (statusCode) {
+            case 221 -> log.info("Success");
+            case 421 ->
+                    throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
+            default -> throw new TimeoutException("Wrong status code: " + statusCode);
+        }
+        log.info("Del completed");
+        complete(null);
+    }
+}
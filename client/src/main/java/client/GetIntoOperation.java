@@ -0,0 +1,61 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import jdk.incubator.foreign.MemorySegment;
+import model.PlasmaEntry;
+import org.apache.commons.lang3.SerializationException;
+
+/**
+ * Reads only the value of a compact entry, straight into memory owned by the caller.
+ * <p>
+ * The position of the value inside of the remote entry follows from the length of the key, so no part of the entry
+ * has to be read in advance. If the value does not fit into the target, nothing is read. An entry the server sent
+ * inline is copied into the target the same way.
+ */
+final class GetIntoOperation extends ReadOperation<Long> {
+    private final MemorySegment target;
+    private final long valueOffset;
+    private long valueLength;
+
+    GetIntoOperation(final DPwRKey key, final MemorySegment target, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+        this.target = target;
+        this.valueOffset = PlasmaEntry.compactHeaderSize(key.bytes().length);
+    }
+
+    @Override
+    protected long[] startTransfer() throws ControlException, SerializationException {
+        valueLength = checkedValueLength(descriptor().remoteSize());
+        if (valueLength > target.byteSize()) {
+            return new long[0];
+        }
+        return new long[]{endpoint.get(target.asSlice(0, valueLength), descriptor().remoteAddress().addOffset(valueOffset), unpackRemoteKey())};
+    }
+
+    @Override
+    protected Long finishTransfer() {
+        return valueLength;
+    }
+
+    @Override
+    protected Long finishInline(final MemorySegment entry) throws SerializationException {
+        valueLength = checkedValueLength(entry.byteSize());
+        if (valueLength <= target.byteSize()) {
+            target.asSlice(0, valueLength).copyFrom(entry.asSlice(valueOffset, valueLength));
+        }
+        return valueLength;
+    }
+
+    /**
+     * Returns the length of the value inside of a compact entry of the given size.
+     *
+     * @throws SerializationException If the entry is too small for the key and the next plasma ID.
+     */
+    private long checkedValueLength(final long entrySize) throws SerializationException {
+        final long length = entrySize - valueOffset - PlasmaEntry.NEXT_PLASMA_ID_SIZE;
+        if (length < 0) {
+            throw new SerializationException("Invalid entry size " + entrySize);
+        }
+        return length;
+    }
+}
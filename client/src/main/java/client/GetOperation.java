@@ -0,0 +1,47 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import jdk.incubator.foreign.MemorySegment;
+import model.PlasmaEntry;
+import org.apache.commons.lang3.SerializationException;
+
+import java.nio.ByteBuffer;
+
+import static utils.CommunicationUtils.getPlasmaEntryFromBuffer;
+
+/**
+ * Reads the whole entry into a transfer buffer and returns a copy of its value.
+ */
+final class GetOperation extends ReadOperation<byte[]> {
+    private MemorySegment targetBuffer;
+
+    GetOperation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+    }
+
+    @Override
+    protected long[] startTransfer() throws ControlException {
+        targetBuffer = allocateTransferBuffer(descriptor().remoteSize());
+        return new long[]{endpoint.get(targetBuffer, descriptor().remoteAddress(), unpackRemoteKey())};
+    }
+
+    @Override
+    protected byte[] finishTransfer() throws SerializationException {
+        return readValue(targetBuffer);
+    }
+
+    @Override
+    protected byte[] finishInline(final MemorySegment entry) throws SerializationException {
+        return readValue(entry);
+    }
+
+    private byte[] readValue(final MemorySegment entry) throws SerializationException {
+        if (lane.supports(ProtocolFeature.COMPACT_ENTRIES)) {
+            final ByteBuffer compactValue = PlasmaEntry.compactValue(entry.asByteBuffer());
+            final byte[] value = new byte[compactValue.remaining()];
+            compactValue.get(value);
+            return value;
+        }
+        return getPlasmaEntryFromBuffer(entry.asByteBuffer()).value;
+    }
+}
@@ -0,0 +1,84 @@
+package client;
+
+import exceptions.KeyNotFoundException;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ValueLayout;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import utils.OperationCode;
+
+import java.util.concurrent.TimeoutException;
+
+import static utils.CommunicationUtils.prepareToReceiveData;
+
+@Slf4j
+final class HashOperation extends Operation<byte[]> {
+    private enum State {SEND_REQUEST, REQUEST_SENT, SIZE_RECEIVED, RESULT_RECEIVED}
+
+    /**
+     * Upper bound for the size of a hash, whether carried in a response frame or sent on its own.
+     */
+    private static final int MAX_HASH_SIZE = 64;
+
+    private State state;
+    private MemorySegment sizeBuffer;
+    private MemorySegment hashBuffer;
+
+    HashOperation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+    }
+
+    @Override
+    protected void onStart() {
+        state = State.SEND_REQUEST;
+    }
+
+    @Override
+    protected void step() throws TimeoutException, KeyNotFoundException, SerializationException {
+        switch (state) {
+            case SEND_REQUEST -> {
+                log.info("Starting HSH operation");
+                sendRequest(OperationCode.HSH, NO_VALUE, MAX_HASH_SIZE);
+                state = State.REQUEST_SENT;
+            }
+            case REQUEST_SENT -> {
+                final int statusCode = statusCode();
+                switch (statusCode) {
+                    case 241 -> log.info("Success");
+                    case 441 ->
+                            throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
+                    default -> throw new TimeoutException("Wrong status code: " + statusCode);
+                }
+                final MemorySegment payload = responsePayload();
+                if (payload != null) {
+                    log.info("HSH completed");
+                    complete(payload.toArray(ValueLayout.JAVA_BYTE));
+                    return;
+                }
+                sizeBuffer = arena.allocate(Integer.BYTES);
+                await(prepareToReceiveData(tagID, sizeBuffer, worker));
+                state = State.SIZE_RECEIVED;
+            }
+            case SIZE_RECEIVED -> {
+                final int hashSize = sizeBuffer.asByteBuffer().getInt();
+                log.info("[{}] Received \"{}\"", tagID, hashSize);
+                if (hashSize < 0 || hashSize > MAX_HASH_SIZE) {
+                    throw new SerializationException("Invalid hash size " + hashSize);
+                }
+                hashBuffer = arena.allocate(hashSize);
+                await(prepareToReceiveData(tagID, hashBuffer, worker), prepareToReceiveStatusCode());
+                state = State.RESULT_RECEIVED;
+            }
+            case RESULT_RECEIVED -> {
+                final int resultStatusCode = statusCode();
+                if (resultStatusCode == 242) {
+                    log.info("Success");
+                } else {
+                    throw new TimeoutException("Wrong status code: " + resultStatusCode);
+                }
+                log.info("HSH completed");
+                complete(hashBuffer.toArray(ValueLayout.JAVA_BYTE));
+            }
+        }
+    }
+}
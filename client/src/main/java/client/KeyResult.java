@@ -0,0 +1,16 @@
+package client;
+
+/**
+ * The result of a single key of a batch operation.
+ *
+ * @param key    The key.
+ * @param status The outcome of the operation for this key.
+ * @param value  The value of the operation if the status is {@link KeyStatus#OK}, otherwise null.
+ * @param <T>    The type of the value.
+ */
+public record KeyResult<T>(DPwRKey key, KeyStatus status, T value) {
+
+    public boolean isOk() {
+        return status == KeyStatus.OK;
+    }
+}
@@ -0,0 +1,26 @@
+package client;
+
+/**
+ * The outcome of a single key of a batch operation.
+ */
+public enum KeyStatus {
+    /**
+     * The operation succeeded for this key.
+     */
+    OK,
+
+    /**
+     * The key does not exist.
+     */
+    NOT_FOUND,
+
+    /**
+     * The key already exists.
+     */
+    DUPLICATE_KEY,
+
+    /**
+     * The operation did not succeed in the given number of attempts.
+     */
+    FAILED
+}
@@ -0,0 +1,21 @@
+package client;
+
+import utils.WaitStrategy;
+
+import java.util.Set;
+
+/**
+ * The configuration of a {@link DPwRClient} that every {@link WorkerLane} needs.
+ *
+ * @param protocolFeatures The enabled protocol extensions.
+ * @param waitStrategy     How the lane waits while the worker has nothing to do.
+ * @param pipelineDepth    How many operations may be in progress per server.
+ * @param failurePolicy    What happens to operations for a server whose connection failed.
+ * @param serverTimeout    The timeout in milliseconds for a reconnect to a failed server.
+ * @param retries          Decides about retries of failed operations, shared by all lanes.
+ * @param inlineThreshold  The size in bytes up to which entries are sent with {@link ProtocolFeature#INLINE_VALUES}.
+ */
+record LaneSettings(Set<ProtocolFeature> protocolFeatures, WaitStrategy waitStrategy, int pipelineDepth,
+                    ServerFailurePolicy failurePolicy, int serverTimeout, RetryCoordinator retries,
+                    int inlineThreshold) {
+}
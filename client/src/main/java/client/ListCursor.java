@@ -0,0 +1,121 @@
+package client;
+
+import exceptions.NetworkException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Iterates over the objects of all servers while they are listed in parallel, see
+ * {@link DPwRClient#listStream(int)}.
+ * <p>
+ * The cursor drives the lane of the thread that opened it whenever no object is waiting, and takes the waiting
+ * objects from the servers in turn. It must only be used by that thread. Closing the cursor before the end cancels
+ * the listings that did not start yet. The listings in progress run to their end in the background without reading
+ * their remaining objects, which keeps their connections usable, and later operations of the lane drive them.
+ * <p>
+ * While the cursor is open, its listings may hold the lane of the thread, so the thread cannot run other blocking
+ * operations of the client, see {@link WorkerLane#checkNoOpenCursor()}.
+ */
+final class ListCursor implements Iterator<byte[]>, AutoCloseable {
+    private final WorkerLane lane;
+    private final List<ListOperation> operations;
+    private int nextOperation;
+    private int idleRounds;
+    private byte[] next;
+    private boolean closed;
+
+    ListCursor(final WorkerLane lane, final List<ListOperation> operations) {
+        this.lane = lane;
+        this.operations = operations;
+        lane.cursorOpened();
+    }
+
+    /**
+     * @throws CompletionException With a {@link NetworkException} if the listing of a server failed.
+     */
+    @Override
+    public boolean hasNext() {
+        if (!lane.isOwnedByCurrentThread()) {
+            throw new IllegalStateException("A list cursor must only be used by the thread that opened it");
+        }
+        while (next == null && !closed) {
+            next = takeNext();
+            if (next != null) {
+                break;
+            }
+            if (allDone()) {
+                close();
+                break;
+            }
+            lane.poll();
+            idleRounds = lane.idle(idleRounds);
+        }
+        return next != null;
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final byte[] object = next;
+        next = null;
+        return object;
+    }
+
+    private byte[] takeNext() {
+        for (int i = 0; i < operations.size(); i++) {
+            final ListOperation operation = operations.get((nextOperation + i) % operations.size());
+            final byte[] object = operation.nextObject();
+            if (object != null) {
+                nextOperation = (nextOperation + i + 1) % operations.size();
+                idleRounds = 0;
+                return object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether every listing finished.
+     *
+     * @throws CompletionException With a {@link NetworkException} as soon as one listing failed.
+     */
+    private boolean allDone() {
+        boolean done = true;
+        for (final ListOperation operation : operations) {
+            if (operation.future().isCompletedExceptionally()) {
+                close();
+                try {
+                    operation.result();
+                } catch (final Exception e) {
+                    throw new CompletionException(new NetworkException(e.getMessage()));
+                }
+            }
+            done &= operation.isDone();
+        }
+        return done;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        lane.cursorClosed();
+        for (final ListOperation operation : operations) {
+            if (operation.isDone()) {
+                continue;
+            }
+            operation.discardRemaining();
+            if (!lane.isInProgress(operation)) {
+                lane.cancel(operation, new CancellationException("The listing was closed"));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ValueLayout;
+import lombok.extern.slf4j.Slf4j;
+import utils.OperationCode;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+
+import static utils.CommunicationUtils.prepareToReceiveData;
+import static utils.CommunicationUtils.prepareToSendKey;
+import static utils.CommunicationUtils.prepareToSendOperationCode;
+
+/**
+ * The LST protocol for one server, delivering the objects one by one to a {@link ListCursor} instead of collecting
+ * all of them.
+ * <p>
+ * The server sends the descriptor of the next object only after the previous one was acknowledged, so the
+ * acknowledgement is posted together with the receive of the next descriptor. Read objects wait in a queue of
+ * limited size, and while it is full the operation neither acknowledges nor reads anything, which holds the server
+ * back until the consumer caught up. An operation is only retried as long as it did not deliver an object yet,
+ * because a new attempt starts the listing from the beginning. Without {@link ProtocolFeature#CLIENT_TAG_IDS} the
+ * lane runs one operation at a time, so the listings of the servers follow each other instead of running in parallel.
+ * <p>
+ * With {@link ProtocolFeature#PREFIX_LISTING} the request carries a key prefix and the server only lists the
+ * objects whose key starts with it.
+ * <p>
+ * Once the consumer lost interest, {@link #discardRemaining()} lets the listing run to its end without reading the
+ * remaining objects, so that the server finishes the exchange and the connection stays usable.
+ */
+@Slf4j
+final class ListOperation extends Operation<Integer> {
+    private enum State {SEND_REQUEST, COUNT_RECEIVED, DESCRIPTOR_RECEIVED, OBJECT_READ, DELIVER, LAST_ACK_SENT}
+
+    private final ArrayDeque<byte[]> objects = new ArrayDeque<>();
+    private final int prefetch;
+    private final byte[] prefix;
+    private State state;
+    private MemorySegment countBuffer;
+    private MemorySegment objectBuffer;
+    private byte[] object;
+    private int count;
+    private int acknowledged;
+    private boolean discarding;
+
+    /**
+     * @param prefix The UTF-8 encoded key prefix sent with {@link ProtocolFeature#PREFIX_LISTING}, empty for all objects.
+     */
+    ListOperation(final int serverID, final byte[] prefix, final int prefetch, final int serverTimeout, final int maxAttempts) {
+        super(null, serverID, serverTimeout, maxAttempts);
+        this.prefix = prefix;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Returns the next object read from the server, or null if none is waiting.
+     */
+    byte[] nextObject() {
+        return objects.poll();
+    }
+
+    /**
+     * Acknowledges all remaining descriptors without reading their objects and drops the objects already read.
+     */
+    void discardRemaining() {
+        discarding = true;
+        objects.clear();
+        disableRetries();
+    }
+
+    @Override
+    protected void onStart() {
+        state = State.SEND_REQUEST;
+        objects.clear();
+        object = null;
+        acknowledged = 0;
+    }
+
+    @Override
+    protected void step() throws ControlException, TimeoutException {
+        switch (state) {
+            case SEND_REQUEST -> {
+                log.info("[{}] Starting LST operation", tagID);
+                countBuffer = arena.allocate(Integer.BYTES);
+                final long operationRequest = prepareToSendOperationCode(tagID, OperationCode.LST, lane.supports(ProtocolFeature.BINARY_CODES), endpoint, arena);
+                if (lane.supports(ProtocolFeature.PREFIX_LISTING)) {
+                    final long[] prefixRequests = prepareToSendKey(tagID, prefix, endpoint, arena);
+                    await(operationRequest, prefixRequests[0], prefixRequests[1], prepareToReceiveData(tagID, countBuffer, worker));
+                } else {
+                    await(operationRequest, prepareToReceiveData(tagID, countBuffer, worker));
+                }
+                state = State.COUNT_RECEIVED;
+            }
+            case COUNT_RECEIVED -> {
+                count = countBuffer.asByteBuffer().getInt();
+                log.info("[{}] Listing {} objects", tagID, count);
+                if (count == 0) {
+                    complete(0);
+                    return;
+                }
+                await(prepareToReceiveDescriptor());
+                state = State.DESCRIPTOR_RECEIVED;
+            }
+            case DESCRIPTOR_RECEIVED -> {
+                if (discarding) {
+                    acknowledge();
+                    return;
+                }
+                objectBuffer = allocateTransferBuffer(descriptor().remoteSize());
+                await(endpoint.get(objectBuffer, descriptor().remoteAddress(), unpackRemoteKey()));
+                state = State.OBJECT_READ;
+            }
+            case OBJECT_READ -> {
+                releaseRemoteKey();
+                object = objectBuffer.toArray(ValueLayout.JAVA_BYTE);
+                state = State.DELIVER;
+                step();
+            }
+            case DELIVER -> {
+                if (!discarding) {
+                    if (objects.size() >= prefetch) {
+                        await();
+                        return;
+                    }
+                    objects.add(object);
+                }
+                object = null;
+                acknowledge();
+            }
+            case LAST_ACK_SENT -> {
+                log.info("[{}] LST completed", tagID);
+                complete(count);
+            }
+        }
+    }
+
+    /**
+     * Acknowledges the current object and posts the receive of the next descriptor, if there is one.
+     */
+    private void acknowledge() {
+        acknowledged++;
+        disableRetries();
+        // Nothing of the previous objects is used anymore, keep the arena from growing with the listing
+        resetArena();
+        if (acknowledged == count) {
+            await(prepareToSendStatusCode(251));
+            state = State.LAST_ACK_SENT;
+        } else {
+            await(prepareToSendStatusCode(251), prepareToReceiveDescriptor());
+            state = State.DESCRIPTOR_RECEIVED;
+        }
+    }
+}
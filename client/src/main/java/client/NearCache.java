@@ -0,0 +1,191 @@
+package client;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The near cache of a {@link DPwRClient}, see {@link NearCachePolicy}.
+ * <p>
+ * The cache is split into segments by the hash of the key, each with its own lock, its own share of the capacity and
+ * its own least recently used order, so that threads reading different keys rarely wait for each other. Every
+ * segment counts its invalidations. A value read from the server is only stored if no invalidation happened in its
+ * segment since the read started, otherwise a read that raced with a write of the same client could store the
+ * overwritten value.
+ */
+final class NearCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final boolean offHeap;
+    private final boolean expires;
+    private final long timeToLiveNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    NearCache(final NearCachePolicy policy) {
+        final int segmentCount = Integer.highestOneBit(Math.min(MAX_SEGMENTS, policy.maxEntries()));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(Math.max(1, policy.maxEntries() / segmentCount), Math.max(1, policy.maxBytes() / segmentCount));
+        }
+        this.offHeap = policy.offHeap();
+        this.expires = policy.expires();
+        this.timeToLiveNanos = this.expires ? policy.timeToLiveNanos() : 0;
+    }
+
+    /**
+     * Returns a copy of the cached value, or null if the key is not cached or expired.
+     */
+    byte[] get(final DPwRKey key) {
+        final Segment segment = segment(key);
+        final byte[] value;
+        synchronized (segment) {
+            final Entry entry = segment.entries.get(key);
+            if (entry == null) {
+                value = null;
+            } else if (this.expires && System.nanoTime() - entry.expiresAt >= 0) {
+                segment.remove(key);
+                expirations.increment();
+                value = null;
+            } else {
+                value = entry.value();
+            }
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the invalidation count of the key's segment, to be passed to {@link #put} once the value was read.
+     */
+    long version(final DPwRKey key) {
+        final Segment segment = segment(key);
+        synchronized (segment) {
+            return segment.version;
+        }
+    }
+
+    /**
+     * Stores a copy of a value read from the server, unless the segment was invalidated since the given version or
+     * the value alone exceeds the capacity of the segment.
+     */
+    void put(final DPwRKey key, final byte[] value, final long version) {
+        final Segment segment = segment(key);
+        if (value.length > segment.maxBytes) {
+            return;
+        }
+        final Entry entry = new Entry(store(value), value.length, this.expires ? System.nanoTime() + this.timeToLiveNanos : 0);
+        synchronized (segment) {
+            if (segment.version != version) {
+                return;
+            }
+            segment.remove(key);
+            segment.entries.put(key, entry);
+            segment.bytes += entry.length;
+            final Iterator<Map.Entry<DPwRKey, Entry>> eldest = segment.entries.entrySet().iterator();
+            while (segment.entries.size() > segment.maxEntries || segment.bytes > segment.maxBytes) {
+                segment.bytes -= eldest.next().getValue().length;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the key. Called before and after every write or delete of the client.
+     */
+    void invalidate(final DPwRKey key) {
+        final Segment segment = segment(key);
+        final boolean removed;
+        synchronized (segment) {
+            segment.version++;
+            removed = segment.remove(key);
+        }
+        if (removed) {
+            invalidations.increment();
+        }
+    }
+
+    void clear() {
+        for (final Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.version++;
+                segment.entries.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    NearCacheStatistics statistics() {
+        long entries = 0;
+        long bytes = 0;
+        for (final Segment segment : this.segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new NearCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                invalidations.sum(), entries, bytes);
+    }
+
+    private Object store(final byte[] value) {
+        if (!this.offHeap) {
+            return value.clone();
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(value.length);
+        buffer.put(value).flip();
+        return buffer;
+    }
+
+    private Segment segment(final DPwRKey key) {
+        final int hash = key.hashCode();
+        return this.segments[(hash ^ (hash >>> 16)) & (this.segments.length - 1)];
+    }
+
+    private static final class Segment {
+        private final int maxEntries;
+        private final long maxBytes;
+        private final LinkedHashMap<DPwRKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        private long version;
+
+        private Segment(final int maxEntries, final long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        private boolean remove(final DPwRKey key) {
+            final Entry entry = entries.remove(key);
+            if (entry == null) {
+                return false;
+            }
+            bytes -= entry.length;
+            return true;
+        }
+    }
+
+    /**
+     * A cached value, either a heap array or a direct buffer.
+     */
+    private record Entry(Object storage, int length, long expiresAt) {
+        private byte[] value() {
+            if (storage instanceof byte[] array) {
+                return array.clone();
+            }
+            final byte[] value = new byte[length];
+            ((ByteBuffer) storage).duplicate().get(value);
+            return value;
+        }
+    }
+}
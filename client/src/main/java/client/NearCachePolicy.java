@@ -0,0 +1,95 @@
+package client;
+
+import java.time.Duration;
+
+/**
+ * Configures the near cache of a {@link DPwRClient}, which keeps recently read values in the client so that repeated
+ * reads of hot keys skip the server.
+ * <p>
+ * The cache is bounded by a number of entries and a number of value bytes and evicts the least recently used entries
+ * first. Values can be kept on the heap or in direct memory, and may expire after a time to live. Writes and deletes
+ * of the client invalidate its own cache, but changes made by other clients are only seen once an entry expired or
+ * was evicted, so a time to live should be set whenever other clients write the same keys.
+ * <p>
+ * Policies are immutable, the {@code with} methods return modified copies.
+ */
+public final class NearCachePolicy {
+    private static final NearCachePolicy DEFAULTS = new NearCachePolicy(10_000, 64L * 1024 * 1024, null, false);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration timeToLive;
+    private final boolean offHeap;
+
+    private NearCachePolicy(final int maxEntries, final long maxBytes, final Duration timeToLive, final boolean offHeap) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Returns the default policy: up to 10000 entries and 64 MiB of values on the heap, which never expire.
+     */
+    public static NearCachePolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy that keeps at most the given number of entries.
+     */
+    public NearCachePolicy withMaxEntries(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The near cache must hold at least one entry");
+        }
+        return new NearCachePolicy(maxEntries, maxBytes, timeToLive, offHeap);
+    }
+
+    /**
+     * Returns a copy that keeps at most the given number of value bytes.
+     */
+    public NearCachePolicy withMaxBytes(final long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The near cache must hold at least one byte");
+        }
+        return new NearCachePolicy(maxEntries, maxBytes, timeToLive, offHeap);
+    }
+
+    /**
+     * Returns a copy whose entries expire the given time after they were read from the server. Null disables
+     * expiration.
+     */
+    public NearCachePolicy withTimeToLive(final Duration timeToLive) {
+        if (timeToLive != null && (timeToLive.isNegative() || timeToLive.isZero())) {
+            throw new IllegalArgumentException("The time to live must be positive");
+        }
+        return new NearCachePolicy(maxEntries, maxBytes, timeToLive, offHeap);
+    }
+
+    /**
+     * Returns a copy that keeps the values in direct memory instead of the heap.
+     */
+    public NearCachePolicy withOffHeapStorage(final boolean offHeap) {
+        return new NearCachePolicy(maxEntries, maxBytes, timeToLive, offHeap);
+    }
+
+    int maxEntries() {
+        return maxEntries;
+    }
+
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    boolean expires() {
+        return timeToLive != null;
+    }
+
+    long timeToLiveNanos() {
+        return timeToLive.toNanos();
+    }
+
+    boolean offHeap() {
+        return offHeap;
+    }
+}
@@ -0,0 +1,16 @@
+package client;
+
+/**
+ * A snapshot of the near cache of a {@link DPwRClient}.
+ *
+ * @param hits          How often a read was answered from the cache.
+ * @param misses        How often a read had to ask the server.
+ * @param evictions     How often an entry was dropped to stay within the capacity.
+ * @param expirations   How often an entry was dropped because its time to live passed.
+ * @param invalidations How often an entry was dropped because the client wrote or deleted its key.
+ * @param entries       The number of entries currently cached.
+ * @param bytes         The number of value bytes currently cached.
+ */
+public record NearCacheStatistics(long hits, long misses, long evictions, long expirations, long invalidations,
+                                  long entries, long bytes) {
+}
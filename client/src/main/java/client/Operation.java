@@ -0,0 +1,481 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import de.hhu.bsinfo.infinileap.binding.Endpoint;
+import de.hhu.bsinfo.infinileap.binding.MemoryDescriptor;
+import de.hhu.bsinfo.infinileap.binding.RemoteKey;
+import de.hhu.bsinfo.infinileap.binding.Worker;
+import de.hhu.bsinfo.infinileap.primitive.NativeLong;
+import de.hhu.bsinfo.infinileap.util.Requests;
+import exceptions.DuplicateKeyException;
+import exceptions.KeyNotFoundException;
+import jdk.incubator.foreign.MemorySegment;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import utils.CommunicationUtils;
+import utils.OperationCode;
+import utils.ScratchArena;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static de.hhu.bsinfo.infinileap.util.Requests.State.COMPLETE;
+import static de.hhu.bsinfo.infinileap.util.Requests.State.ERROR;
+import static de.hhu.bsinfo.infinileap.util.Requests.state;
+import static utils.CommunicationUtils.FRAME_FLAG_INLINE;
+import static utils.CommunicationUtils.codeSize;
+import static utils.CommunicationUtils.decodeStatusCode;
+import static utils.CommunicationUtils.getResponseFramePayload;
+import static utils.CommunicationUtils.prepareToAnnounceTagID;
+import static utils.CommunicationUtils.prepareToReceiveData;
+import static utils.CommunicationUtils.prepareToReceiveMemoryDescriptor;
+import static utils.CommunicationUtils.prepareToReceiveTagIDAsStream;
+import static utils.CommunicationUtils.prepareToSendInteger;
+import static utils.CommunicationUtils.prepareToSendKey;
+import static utils.CommunicationUtils.prepareToSendOperationCode;
+import static utils.CommunicationUtils.prepareToSendRequestFrame;
+import static utils.CommunicationUtils.responseFrameHeaderSize;
+import static utils.CommunicationUtils.prepareToStreamTagID;
+import static utils.CommunicationUtils.readTagID;
+
+/**
+ * A single request to a server, written as a state machine so that it never blocks the thread driving it.
+ * <p>
+ * The {@link WorkerLane} the operation runs on first performs the tag ID handshake and then calls {@link #step()}
+ * every time all requests passed to {@link #await(long...)} completed. Each step posts the next messages of the
+ * protocol and returns immediately, until the operation finally calls {@link #complete(Object)}.
+ *
+ * @param <T> The type of the operation's result.
+ */
+@Slf4j
+abstract class Operation<T> {
+    private static final long[] NO_REQUESTS = new long[0];
+    protected static final int NO_VALUE = -1;
+
+    protected final DPwRKey key;
+    private final int serverID;
+    private final long timeoutNanos;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private int remainingAttempts;
+    private int failedAttempts;
+    private long operationDeadline;
+    private long retryAt;
+
+    protected WorkerLane lane;
+    protected Worker worker;
+    protected Endpoint endpoint;
+    protected ScratchArena arena;
+    protected long tagID;
+
+    private long[] pendingRequests = NO_REQUESTS;
+    private long deadline;
+    private boolean tagReceived;
+    private boolean leasingTagIDs;
+    private MemorySegment tagBuffer;
+    private MemorySegment statusBuffer;
+    private MemorySegment responseFrame;
+    private MemoryDescriptor descriptor;
+    private RemoteKey remoteKey;
+    private RegisteredBufferPool.RegisteredBuffer transferBuffer;
+
+    Operation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        this.key = key;
+        this.serverID = serverID;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(serverTimeout);
+        this.remainingAttempts = maxAttempts;
+    }
+
+    int serverID() {
+        return serverID;
+    }
+
+    CompletableFuture<T> future() {
+        return future;
+    }
+
+    boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Limits the run time of all attempts together. Zero means the operation has no deadline.
+     */
+    void setOperationDeadline(final long operationDeadline) {
+        this.operationDeadline = operationDeadline;
+    }
+
+    boolean hasDeadline() {
+        return operationDeadline != 0;
+    }
+
+    long operationDeadline() {
+        return operationDeadline;
+    }
+
+    int failedAttempts() {
+        return failedAttempts;
+    }
+
+    long retryAt() {
+        return retryAt;
+    }
+
+    void setRetryAt(final long retryAt) {
+        this.retryAt = retryAt;
+    }
+
+    /**
+     * Starts a new attempt of this operation on the given endpoint. Unless the client allocates tag IDs itself and
+     * already leased a prefix for this connection, the operation first waits for a tag ID from the server.
+     */
+    final void start(final WorkerLane lane, final Endpoint endpoint) throws ControlException, KeyNotFoundException, DuplicateKeyException, TimeoutException, SerializationException {
+        this.lane = lane;
+        this.worker = lane.worker();
+        this.endpoint = endpoint;
+        this.arena = lane.acquireScratchArena();
+        this.tagReceived = false;
+        this.leasingTagIDs = false;
+        this.responseFrame = null;
+        onStart();
+
+        if (!lane.supports(ProtocolFeature.CLIENT_TAG_IDS)) {
+            await(prepareToStreamTagID(lane.tagID(), endpoint, arena), prepareToReceiveTagID());
+            return;
+        }
+        final TagAllocator allocator = lane.tagAllocator(serverID);
+        if (allocator == null) {
+            this.leasingTagIDs = true;
+            await(prepareToAnnounceTagID(0, endpoint, arena), prepareToReceiveTagID());
+            return;
+        }
+        announce(allocator);
+    }
+
+    /**
+     * Posts the receive of a tag ID from the stream of the endpoint. The received length goes to memory of this
+     * attempt, as receives on the streams of different servers may be in progress at the same time.
+     */
+    private long prepareToReceiveTagID() {
+        this.tagBuffer = arena.allocate(Integer.BYTES, Integer.BYTES);
+        final NativeLong streamLength = NativeLong.map(arena.allocate(Long.BYTES, Long.BYTES), 0L);
+        return prepareToReceiveTagIDAsStream(tagBuffer, endpoint, streamLength);
+    }
+
+    /**
+     * Announces a client allocated tag ID and immediately posts the first messages of the operation.
+     */
+    private void announce(final TagAllocator allocator) throws ControlException, KeyNotFoundException, DuplicateKeyException, TimeoutException, SerializationException {
+        tagID = allocator.next();
+        tagReceived = true;
+        final long announceRequest = prepareToAnnounceTagID(tagID, endpoint, arena);
+        boolean stepped = false;
+        try {
+            step();
+            stepped = true;
+        } finally {
+            if (!stepped) {
+                cancelRequest(announceRequest);
+            }
+        }
+        final long[] requests = new long[pendingRequests.length + 1];
+        requests[0] = announceRequest;
+        System.arraycopy(pendingRequests, 0, requests, 1, pendingRequests.length);
+        pendingRequests = requests;
+    }
+
+    /**
+     * Checks the requests this operation is waiting for and advances the state machine if all of them completed.
+     *
+     * @return Whether the operation is done.
+     * @throws TimeoutException If a request failed or did not complete in time.
+     */
+    final boolean poll(final long now) throws TimeoutException, ControlException, KeyNotFoundException, DuplicateKeyException, SerializationException {
+        for (final long request : pendingRequests) {
+            final Requests.State requestState = state(request);
+            if (requestState == ERROR) {
+                cancelPendingRequests();
+                throw new TimeoutException("A request of the operation failed");
+            }
+            if (requestState != COMPLETE) {
+                if (now - deadline > 0) {
+                    cancelPendingRequests();
+                    throw new TimeoutException("A timeout occurred while awaiting a request");
+                }
+                return false;
+            }
+        }
+        for (final long request : pendingRequests) {
+            Requests.release(request);
+        }
+        pendingRequests = NO_REQUESTS;
+
+        if (leasingTagIDs) {
+            leasingTagIDs = false;
+            announce(lane.leaseTagAllocator(serverID, readTagID(tagBuffer)));
+            return isDone();
+        }
+        if (!tagReceived) {
+            tagReceived = true;
+            lane.setTagID(readTagID(tagBuffer));
+            tagID = lane.tagID();
+        }
+        step();
+        return isDone();
+    }
+
+    /**
+     * Resets the state machine at the beginning of every attempt.
+     */
+    protected abstract void onStart();
+
+    /**
+     * Posts the next requests of the protocol. Called once all requests of the previous step completed.
+     */
+    protected abstract void step() throws TimeoutException, ControlException, KeyNotFoundException, DuplicateKeyException, SerializationException;
+
+    protected final void await(final long... requests) {
+        this.pendingRequests = requests;
+        this.deadline = System.nanoTime() + timeoutNanos;
+        if (hasDeadline() && deadline - operationDeadline > 0) {
+            this.deadline = operationDeadline;
+        }
+    }
+
+    /**
+     * Sends the request for this operation's key and posts the receive of the server's first answer.
+     */
+    protected final void sendRequest(final OperationCode operation) {
+        sendRequest(operation, NO_VALUE, 0);
+    }
+
+    /**
+     * Sends the request for this operation's key and posts the receive of the server's first answer. With
+     * {@link ProtocolFeature#REQUEST_FRAMES} the request is a single message and the answer may carry a payload of
+     * up to the given size, which is then available through {@link #responsePayload()}.
+     *
+     * @param valueLength The length of the value that follows the request, or -1 if there is none.
+     */
+    protected final void sendRequest(final OperationCode operation, final int valueLength, final int maxPayloadSize) {
+        final boolean binaryCodes = binaryCodes();
+        if (lane.supports(ProtocolFeature.REQUEST_FRAMES)) {
+            final byte[] keyBytes = key.bytes();
+            responseFrame = arena.allocate(responseFrameHeaderSize(binaryCodes) + maxPayloadSize);
+            statusBuffer = responseFrame;
+            await(prepareToSendRequestFrame(tagID, operation, binaryCodes, (short) 0, keyBytes, Math.max(valueLength, 0), endpoint, arena),
+                    prepareToReceiveData(tagID, responseFrame, worker));
+            return;
+        }
+        final long[] keyRequests = prepareToSendKey(tagID, key.bytes(), endpoint, arena);
+        if (valueLength == NO_VALUE) {
+            await(prepareToSendOperationCode(tagID, operation, binaryCodes, endpoint, arena),
+                    keyRequests[0],
+                    keyRequests[1],
+                    prepareToReceiveStatusCode());
+        } else {
+            await(prepareToSendOperationCode(tagID, operation, binaryCodes, endpoint, arena),
+                    keyRequests[0],
+                    keyRequests[1],
+                    prepareToSendInteger(tagID, valueLength, endpoint, arena),
+                    prepareToReceiveStatusCode());
+        }
+    }
+
+    /**
+     * Sends the request for this operation's key as a frame marked with {@link CommunicationUtils#FRAME_FLAG_INLINE}
+     * and posts the receive of the server's answer. Must only be used while {@link WorkerLane#inlineThreshold()} is
+     * positive.
+     *
+     * @param valueLength The length of the entry sent with the request, or the largest entry accepted in the answer.
+     * @param inlineEntry The entry sent with the request, or null if there is none.
+     */
+    protected final void sendInlineRequest(final OperationCode operation, final int valueLength, final MemorySegment inlineEntry, final int maxPayloadSize) {
+        final boolean binaryCodes = binaryCodes();
+        responseFrame = arena.allocate(responseFrameHeaderSize(binaryCodes) + maxPayloadSize);
+        statusBuffer = responseFrame;
+        await(prepareToSendRequestFrame(tagID, operation, binaryCodes, FRAME_FLAG_INLINE, key.bytes(), valueLength, inlineEntry, endpoint, arena),
+                prepareToReceiveData(tagID, responseFrame, worker));
+    }
+
+    /**
+     * Returns the payload of the server's answer to {@link #sendRequest(OperationCode, int, int)}, or null if the request
+     * was not sent as a frame.
+     *
+     * @throws SerializationException If the payload size in the frame is invalid.
+     */
+    protected final MemorySegment responsePayload() throws SerializationException {
+        return responseFrame == null ? null : getResponseFramePayload(responseFrame, binaryCodes());
+    }
+
+    /**
+     * Takes the memory descriptor from the payload of a response frame.
+     *
+     * @return Whether the descriptor was part of the response, otherwise it still has to be received.
+     * @throws SerializationException If the payload is not exactly as large as a descriptor.
+     */
+    protected final boolean descriptorInResponse() throws SerializationException {
+        final MemorySegment payload = responsePayload();
+        if (payload == null) {
+            return false;
+        }
+        if (payload.byteSize() != descriptor.segment().byteSize()) {
+            throw new SerializationException("Invalid descriptor size " + payload.byteSize() + " in a response frame");
+        }
+        descriptor.segment().copyFrom(payload);
+        return true;
+    }
+
+    /**
+     * Allocates the memory descriptor of this attempt ahead of time, so that a response frame can be sized for it.
+     *
+     * @return The size of the descriptor in bytes.
+     */
+    protected final int allocateDescriptor() {
+        descriptor = arena.descriptor();
+        return (int) descriptor.segment().byteSize();
+    }
+
+    /**
+     * Returns a buffer for the RDMA transfer of a value. The buffer comes from the registered buffer pool of the
+     * client if possible and stays valid until the attempt ends.
+     */
+    protected final MemorySegment allocateTransferBuffer(final long size) {
+        releaseTransferBuffer();
+        transferBuffer = lane.bufferPool().acquire(size);
+        if (transferBuffer == null) {
+            return MemorySegment.allocateNative(size, arena.overflowScope());
+        }
+        return transferBuffer.segment(size);
+    }
+
+    private void releaseTransferBuffer() {
+        if (transferBuffer != null) {
+            lane.bufferPool().release(transferBuffer);
+            transferBuffer = null;
+        }
+    }
+
+    protected final long prepareToSendStatusCode(final int statusCode) {
+        return CommunicationUtils.prepareToSendStatusCode(tagID, statusCode, binaryCodes(), endpoint, arena);
+    }
+
+    protected final long prepareToReceiveStatusCode() {
+        statusBuffer = arena.allocate(codeSize(binaryCodes()));
+        return prepareToReceiveData(tagID, statusBuffer, worker);
+    }
+
+    protected final int statusCode() {
+        final int statusCode = decodeStatusCode(statusBuffer.asByteBuffer(), binaryCodes());
+        log.info("[{}] Received status code: {}", tagID, statusCode);
+        return statusCode;
+    }
+
+    private boolean binaryCodes() {
+        return lane.supports(ProtocolFeature.BINARY_CODES);
+    }
+
+    protected final long prepareToReceiveDescriptor() {
+        descriptor = arena.descriptor();
+        return prepareToReceiveMemoryDescriptor(tagID, descriptor, worker);
+    }
+
+    protected final MemoryDescriptor descriptor() {
+        return descriptor;
+    }
+
+    protected final RemoteKey unpackRemoteKey() throws ControlException {
+        remoteKey = endpoint.unpack(descriptor);
+        return remoteKey;
+    }
+
+    protected final void releaseRemoteKey() {
+        if (remoteKey != null) {
+            remoteKey.close();
+            remoteKey = null;
+        }
+    }
+
+    protected final void complete(final T result) {
+        finishAttempt();
+        future.complete(result);
+    }
+
+    final void fail(final Throwable throwable) {
+        cancelPendingRequests();
+        finishAttempt();
+        future.completeExceptionally(throwable);
+    }
+
+    /**
+     * Cleans up after a failed attempt and decides whether the operation should be started again.
+     */
+    final boolean retry() {
+        cancelPendingRequests();
+        finishAttempt();
+        failedAttempts++;
+        remainingAttempts--;
+        return remainingAttempts > 0;
+    }
+
+    /**
+     * Makes the current attempt the last one, for operations that cannot be repeated once they had an effect.
+     */
+    protected final void disableRetries() {
+        remainingAttempts = Math.min(remainingAttempts, 1);
+    }
+
+    /**
+     * Makes the whole scratch arena of the attempt available again. Only for long running operations, between two
+     * steps that do not share any control message or descriptor.
+     */
+    protected final void resetArena() {
+        arena.reset();
+    }
+
+    private void cancelPendingRequests() {
+        for (final long request : pendingRequests) {
+            cancelRequest(request);
+        }
+        pendingRequests = NO_REQUESTS;
+    }
+
+    private void cancelRequest(final long request) {
+        if (state(request) != COMPLETE) {
+            worker.cancelRequest(request);
+        }
+        Requests.release(request);
+    }
+
+    private void finishAttempt() {
+        releaseRemoteKey();
+        releaseTransferBuffer();
+        if (arena != null) {
+            lane.releaseScratchArena(arena);
+            arena = null;
+        }
+    }
+
+    /**
+     * Returns the result of this already completed operation, rethrowing the exception it failed with.
+     */
+    T result() throws KeyNotFoundException, DuplicateKeyException, ControlException, TimeoutException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof KeyNotFoundException keyNotFoundException) {
+                throw keyNotFoundException;
+            } else if (cause instanceof DuplicateKeyException duplicateKeyException) {
+                throw duplicateKeyException;
+            } else if (cause instanceof ControlException controlException) {
+                throw controlException;
+            } else if (cause instanceof TimeoutException timeoutException) {
+                throw timeoutException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new TimeoutException(cause.getMessage());
+        }
+    }
+}
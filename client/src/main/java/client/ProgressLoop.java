@@ -0,0 +1,117 @@
+package client;
+
+import exceptions.NetworkException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A dedicated thread driving the asynchronous operations of a {@link DPwRClient}.
+ * <p>
+ * Operations may be submitted from any thread. The loop hands them to its own {@link WorkerLane}, progresses the
+ * worker as long as operations are in flight and parks the thread when there is nothing to do. While operations are
+ * in flight but the worker has no events, for example during a retry backoff or a reconnect, the loop waits according
+ * to the wait strategy of the lane. A waiting loop notices new submissions after at most
+ * {@link utils.WaitStrategy#MAX_AWAIT_NANOS}.
+ */
+@Slf4j
+final class ProgressLoop implements Runnable {
+    private final Queue<Operation<?>> submissions = new ConcurrentLinkedQueue<>();
+    private final Callable<WorkerLane> laneFactory;
+    private final Consumer<WorkerLane> onShutdown;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    ProgressLoop(final Callable<WorkerLane> laneFactory, final Consumer<WorkerLane> onShutdown) {
+        this.laneFactory = laneFactory;
+        this.onShutdown = onShutdown;
+        this.thread = new Thread(this, "dpwr-progress-loop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void submit(final Operation<?> operation) {
+        if (!running) {
+            operation.fail(new NetworkException("The progress loop was shut down"));
+            return;
+        }
+        submissions.add(operation);
+        // The loop may have drained the submissions for the last time between the check and the add
+        if (!running && submissions.remove(operation)) {
+            operation.fail(new NetworkException("The progress loop was shut down"));
+            return;
+        }
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        final WorkerLane lane;
+        try {
+            lane = laneFactory.call();
+        } catch (final Exception e) {
+            log.error("Creating the worker of the progress loop failed", e);
+            running = false;
+            failSubmissions(new NetworkException(e.getMessage()));
+            return;
+        }
+
+        int idleRounds = 0;
+        while (running) {
+            Operation<?> operation;
+            while ((operation = submissions.poll()) != null) {
+                try {
+                    lane.submit(operation);
+                } catch (final RuntimeException e) {
+                    log.error("Submitting an operation to the progress loop failed", e);
+                    operation.fail(e);
+                }
+            }
+            final boolean busy;
+            try {
+                busy = lane.poll();
+            } catch (final RuntimeException e) {
+                log.error("Progressing the worker of the progress loop failed", e);
+                lane.failAll(new NetworkException(e.getMessage()));
+                continue;
+            }
+            if (!submissions.isEmpty()) {
+                idleRounds = 0;
+            } else if (busy) {
+                idleRounds = lane.idle(idleRounds);
+            } else {
+                LockSupport.park(this);
+                idleRounds = 0;
+            }
+        }
+
+        lane.failAll(new NetworkException("The progress loop was shut down"));
+        failSubmissions(new NetworkException("The progress loop was shut down"));
+        onShutdown.accept(lane);
+    }
+
+    private void failSubmissions(final Throwable throwable) {
+        Operation<?> operation;
+        while ((operation = submissions.poll()) != null) {
+            operation.fail(throwable);
+        }
+    }
+
+    /**
+     * Stops the loop and waits until its thread has failed all remaining operations and closed its lane.
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failSubmissions(new NetworkException("The progress loop was shut down"));
+    }
+}
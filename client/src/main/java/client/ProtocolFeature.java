@@ -0,0 +1,72 @@
+package client;
+
+/**
+ * Optional extensions of the DPwR protocol. All of them are disabled by default and may only be enabled if every
+ * server of the cluster supports them.
+ */
+public enum ProtocolFeature {
+    /**
+     * The client picks the tag ID of every operation itself instead of requesting one from the server first.
+     * <p>
+     * All stream messages are 64 bit wide in this mode. Once per connection the client streams a zero and receives
+     * a 32 bit tag ID from the server, which becomes the upper half of all tag IDs the client uses on this
+     * connection. Every operation then streams its tag ID to announce itself and starts sending right away.
+     */
+    CLIENT_TAG_IDS,
+
+    /**
+     * PUT, GET, DEL, CNT and HSH send their request as a single tagged message instead of one message per field.
+     * <p>
+     * A request frame starts with the operation name (three UTF-16 characters), a 16 bit flags field, the length of
+     * the key and the length of the value, followed by the UTF-8 encoded key. The first answer of the server is a
+     * frame as well: the status code (three UTF-16 characters) and the length of its payload, followed by the
+     * payload itself. The payload is the memory descriptor for PUT and GET and the hash for HSH, the final status
+     * code of HSH is omitted.
+     */
+    REQUEST_FRAMES,
+
+    /**
+     * Operations and status codes are sent as 16 bit numbers instead of three UTF-16 characters. The operations use
+     * the codes of {@link utils.OperationCode}, status codes keep their numeric value. This also applies to the
+     * codes inside of request and response frames.
+     */
+    BINARY_CODES,
+
+    /**
+     * Entries are stored in a fixed binary layout instead of Java serialization: the length of the key, the UTF-8
+     * encoded key, the length of the value, the value and the 20 byte next plasma ID, with all lengths as 32 bit big
+     * endian integers. See {@link model.PlasmaEntry#writeCompact(java.nio.ByteBuffer)}.
+     */
+    COMPACT_ENTRIES,
+
+    /**
+     * The server addresses in the answer to INF are encoded with {@link utils.AddressEncoding} instead of Java
+     * serialization. Every address is still preceded by its length.
+     */
+    BINARY_ADDRESSES,
+
+    /**
+     * LST is followed by a key prefix, sent like the key of PUT or GET, and the server only lists the objects whose
+     * key starts with it. An empty prefix lists all objects. Without this feature the client filters the listing.
+     */
+    PREFIX_LISTING,
+
+    /**
+     * The server understands RPL, which follows the PUT protocol but replaces an existing entry instead of answering
+     * 400. The server allocates the new entry as for PUT and swaps it in for the old one once the client confirmed
+     * the write, so readers see either the old or the new value and the key is never missing.
+     */
+    UPSERT,
+
+    /**
+     * Entries up to the client's inline threshold travel inside of the request and response frames instead of being
+     * transferred per RDMA, see {@link utils.CommunicationUtils#FRAME_FLAG_INLINE}. Only takes effect together with
+     * {@link #REQUEST_FRAMES}.
+     * <p>
+     * A PUT or RPL frame with the flag carries the entry after the key, and the server answers 202 or one of the error
+     * codes right away. A GET frame with the flag announces how large an inline entry may be, and the server answers
+     * 214 with the entry as payload if it fits, or 211 with the memory descriptor as before. An inline transfer needs
+     * no memory descriptor, no remote key and no final status codes.
+     */
+    INLINE_VALUES
+}
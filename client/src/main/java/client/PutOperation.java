@@ -0,0 +1,189 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import de.hhu.bsinfo.infinileap.binding.RemoteKey;
+import exceptions.DuplicateKeyException;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.MemorySegment;
+import lombok.extern.slf4j.Slf4j;
+import model.PlasmaEntry;
+import org.apache.commons.lang3.SerializationException;
+import utils.OperationCode;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.commons.lang3.SerializationUtils.serialize;
+
+/**
+ * The PUT protocol, which stores a new entry and fails if the key exists. As RPL with
+ * {@link ProtocolFeature#UPSERT} the same protocol replaces an existing entry instead.
+ * <p>
+ * Entries up to the inline threshold are sent inside of the request frame with {@link ProtocolFeature#INLINE_VALUES},
+ * and the server answers with the final status code right away.
+ */
+@Slf4j
+final class PutOperation extends Operation<Void> {
+    private enum State {SEND_REQUEST, REQUEST_SENT, DESCRIPTOR_RECEIVED, ENTRY_WRITTEN, RESULT_RECEIVED, INLINE_SENT}
+
+    private static final byte[] NO_NEXT_PLASMA_ID = new byte[PlasmaEntry.NEXT_PLASMA_ID_SIZE];
+
+    private final byte[] value;
+    private final MemorySegment valueSegment;
+    private final byte[] keyBytes;
+    private final byte[] entryBytes;
+    private final int entryLength;
+    private final OperationCode operation;
+    private State state;
+
+    /**
+     * @param compactEntries Whether the entry is written in the compact layout of
+     *                       {@link ProtocolFeature#COMPACT_ENTRIES} instead of being serialized.
+     */
+    PutOperation(final DPwRKey key, final byte[] value, final boolean compactEntries, final int serverID, final int serverTimeout, final int maxAttempts) throws SerializationException {
+        this(key, value, compactEntries, false, serverID, serverTimeout, maxAttempts);
+    }
+
+    /**
+     * @param replace Whether the operation is sent as RPL and replaces an existing entry.
+     */
+    PutOperation(final DPwRKey key, final byte[] value, final boolean compactEntries, final boolean replace, final int serverID, final int serverTimeout, final int maxAttempts) throws SerializationException {
+        super(key, serverID, serverTimeout, maxAttempts);
+        this.operation = replace ? OperationCode.RPL : OperationCode.PUT;
+        this.value = value;
+        this.valueSegment = null;
+        if (compactEntries) {
+            this.keyBytes = key.bytes();
+            this.entryBytes = null;
+            this.entryLength = PlasmaEntry.compactSize(keyBytes.length, value.length);
+        } else {
+            this.keyBytes = null;
+            this.entryBytes = serialize(new PlasmaEntry(key.key(), value, new byte[20]));
+            this.entryLength = entryBytes.length;
+        }
+    }
+
+    /**
+     * Writes the value straight from the given memory into the remote entry, which always uses the compact layout.
+     * The memory must not change until the operation completed.
+     */
+    PutOperation(final DPwRKey key, final MemorySegment value, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+        this.operation = OperationCode.PUT;
+        this.value = null;
+        this.valueSegment = value;
+        this.keyBytes = key.bytes();
+        this.entryBytes = null;
+        this.entryLength = PlasmaEntry.compactSize(keyBytes.length, Math.toIntExact(value.byteSize()));
+    }
+
+    @Override
+    protected void onStart() {
+        state = State.SEND_REQUEST;
+    }
+
+    @Override
+    protected void step() throws TimeoutException, ControlException, DuplicateKeyException {
+        switch (state) {
+            case SEND_REQUEST -> {
+                log.info("[{}] Starting {} operation", tagID, operation);
+                log.info("[{}] Key {}", tagID, key);
+                if (entryLength <= lane.inlineThreshold()) {
+                    final MemorySegment entry = arena.allocate(entryLength);
+                    writeEntry(entry);
+                    sendInlineRequest(operation, entryLength, entry, 0);
+                    state = State.INLINE_SENT;
+                    return;
+                }
+                sendRequest(operation, entryLength, allocateDescriptor());
+                state = State.REQUEST_SENT;
+            }
+            case REQUEST_SENT -> {
+                final int statusCode = statusCode();
+                switch (statusCode) {
+                    case 200 -> {
+                        state = State.DESCRIPTOR_RECEIVED;
+                        if (descriptorInResponse()) {
+                            step();
+                        } else {
+                            await(prepareToReceiveDescriptor());
+                        }
+                    }
+                    case 400 ->
+                            throw new DuplicateKeyException("An object with that key was already in the plasma store");
+                    default -> throw new TimeoutException("Wrong status code: " + statusCode);
+                }
+            }
+            case DESCRIPTOR_RECEIVED -> {
+                log.info("[{}] Send Entry per RDMA", tagID);
+                if (valueSegment != null) {
+                    await(writeAroundValue());
+                    state = State.ENTRY_WRITTEN;
+                    return;
+                }
+                final MemorySegment sourceBuffer = allocateTransferBuffer(entryLength);
+                writeEntry(sourceBuffer);
+                await(endpoint.put(sourceBuffer, descriptor().remoteAddress(), unpackRemoteKey()));
+                state = State.ENTRY_WRITTEN;
+            }
+            case ENTRY_WRITTEN -> {
+                releaseRemoteKey();
+                await(prepareToSendStatusCode(201), prepareToReceiveStatusCode());
+                state = State.RESULT_RECEIVED;
+            }
+            case RESULT_RECEIVED -> {
+                final int resultStatusCode = statusCode();
+                switch (resultStatusCode) {
+                    case 202 -> log.info("[{}] Success", tagID);
+                    case 401, 402, 403, 404, 405 -> throw new TimeoutException("Something went wrong");
+                    default -> throw new TimeoutException("Wrong status code: " + resultStatusCode);
+                }
+                log.info("[{}] {} completed", tagID, operation);
+                complete(null);
+            }
+            case INLINE_SENT -> {
+                final int statusCode = statusCode();
+                switch (statusCode) {
+                    case 202 -> log.info("[{}] Success", tagID);
+                    case 400 ->
+                            throw new DuplicateKeyException("An object with that key was already in the plasma store");
+                    case 401, 402, 403, 404, 405 -> throw new TimeoutException("Something went wrong");
+                    default -> throw new TimeoutException("Wrong status code: " + statusCode);
+                }
+                log.info("[{}] {} completed inline", tagID, operation);
+                complete(null);
+            }
+        }
+    }
+
+    /**
+     * Writes the whole entry into the given memory, which has to be exactly as large as the entry.
+     */
+    private void writeEntry(final MemorySegment target) {
+        if (valueSegment != null) {
+            final int headerSize = PlasmaEntry.compactHeaderSize(keyBytes.length);
+            PlasmaEntry.writeCompactHeader(target.asByteBuffer(), keyBytes, (int) valueSegment.byteSize());
+            target.asSlice(headerSize, valueSegment.byteSize()).copyFrom(valueSegment);
+            target.asSlice(headerSize + valueSegment.byteSize()).fill((byte) 0);
+        } else if (entryBytes == null) {
+            PlasmaEntry.writeCompact(target.asByteBuffer(), keyBytes, value, NO_NEXT_PLASMA_ID);
+        } else {
+            target.asByteBuffer().put(entryBytes);
+        }
+    }
+
+    /**
+     * Writes header and trailer of the entry from the scratch arena and the value directly from the caller's memory.
+     */
+    private long[] writeAroundValue() throws ControlException {
+        final MemorySegment header = arena.allocate(PlasmaEntry.compactHeaderSize(keyBytes.length));
+        PlasmaEntry.writeCompactHeader(header.asByteBuffer(), keyBytes, (int) valueSegment.byteSize());
+        final MemorySegment trailer = arena.allocate(PlasmaEntry.NEXT_PLASMA_ID_SIZE).fill((byte) 0);
+        final MemoryAddress remoteAddress = descriptor().remoteAddress();
+        final RemoteKey remoteKey = unpackRemoteKey();
+        return new long[]{
+                endpoint.put(header, remoteAddress, remoteKey),
+                endpoint.put(valueSegment, remoteAddress.addOffset(header.byteSize()), remoteKey),
+                endpoint.put(trailer, remoteAddress.addOffset(header.byteSize() + valueSegment.byteSize()), remoteKey)
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import exceptions.KeyNotFoundException;
+import jdk.incubator.foreign.MemorySegment;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import utils.OperationCode;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The GET protocol. Subclasses decide where the entry is transferred to and what the operation returns.
+ * <p>
+ * With {@link ProtocolFeature#INLINE_VALUES} the server may answer with the entry itself instead of its descriptor.
+ */
+@Slf4j
+abstract class ReadOperation<T> extends Operation<T> {
+    private enum State {SEND_REQUEST, REQUEST_SENT, DESCRIPTOR_RECEIVED, ENTRY_READ, RESULT_RECEIVED}
+
+    private State state;
+    private T value;
+
+    ReadOperation(final DPwRKey key, final int serverID, final int serverTimeout, final int maxAttempts) {
+        super(key, serverID, serverTimeout, maxAttempts);
+    }
+
+    @Override
+    protected final void onStart() {
+        state = State.SEND_REQUEST;
+        value = null;
+    }
+
+    /**
+     * Posts the RDMA reads of the entry described by {@link #descriptor()}.
+     */
+    protected abstract long[] startTransfer() throws ControlException, SerializationException;
+
+    /**
+     * Extracts the result once all reads completed.
+     */
+    protected abstract T finishTransfer() throws SerializationException;
+
+    /**
+     * Extracts the result from an entry the server sent inside of its answer.
+     */
+    protected abstract T finishInline(MemorySegment entry) throws SerializationException;
+
+    @Override
+    protected final void step() throws TimeoutException, ControlException, KeyNotFoundException, SerializationException {
+        switch (state) {
+            case SEND_REQUEST -> {
+                log.info("[{}] Starting GET operation", tagID);
+                log.info("[{}] Key {}", tagID, key);
+                final int inlineThreshold = lane.inlineThreshold();
+                if (inlineThreshold > 0) {
+                    sendInlineRequest(OperationCode.GET, inlineThreshold, null, Math.max(allocateDescriptor(), inlineThreshold));
+                } else {
+                    sendRequest(OperationCode.GET, NO_VALUE, allocateDescriptor());
+                }
+                state = State.REQUEST_SENT;
+            }
+            case REQUEST_SENT -> {
+                final int statusCode = statusCode();
+                switch (statusCode) {
+                    case 211 -> {
+                        log.info("Receiving Remote Key");
+                        state = State.DESCRIPTOR_RECEIVED;
+                        if (descriptorInResponse()) {
+                            step();
+                        } else {
+                            await(prepareToReceiveDescriptor());
+                        }
+                    }
+                    case 214 -> {
+                        log.info("[{}] Get completed inline", tagID);
+                        complete(finishInline(responsePayload()));
+                    }
+                    case 411 ->
+                            throw new KeyNotFoundException("An object with the key \"" + key + "\" was not found by the server.");
+                    default -> throw new TimeoutException("Wrong status code: " + statusCode);
+                }
+            }
+            case DESCRIPTOR_RECEIVED -> {
+                await(startTransfer());
+                state = State.ENTRY_READ;
+            }
+            case ENTRY_READ -> {
+                releaseRemoteKey();
+                value = finishTransfer();
+                await(prepareToSendStatusCode(212), prepareToReceiveStatusCode());
+                state = State.RESULT_RECEIVED;
+            }
+            case RESULT_RECEIVED -> {
+                final int resultStatusCode = statusCode();
+                switch (resultStatusCode) {
+                    case 213 -> log.info("[{}] Success", tagID);
+                    case 412 -> throw new TimeoutException("Something went wrong");
+                    default -> throw new TimeoutException("Wrong status code: " + resultStatusCode);
+                }
+                log.info("[{}] Get completed", tagID);
+                complete(value);
+            }
+        }
+    }
+}
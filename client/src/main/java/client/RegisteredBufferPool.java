@@ -0,0 +1,172 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.Context;
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import de.hhu.bsinfo.infinileap.binding.MemoryRegion;
+import jdk.incubator.foreign.MemorySegment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of memory regions that are registered with the UCX context once and then reused for the RDMA transfers of
+ * values.
+ * <p>
+ * Buffers are handed out in power of two size classes. The pool grows on demand until its capacity is reached,
+ * afterwards requests that find no free buffer of their class are left to the caller. Released buffers are kept for
+ * reuse as long as the idle memory of the pool stays below its idle limit, any buffer beyond that is deregistered and
+ * freed. The pool is shared by all lanes of a client and may be used from any thread.
+ */
+@Slf4j
+final class RegisteredBufferPool implements AutoCloseable {
+    private static final int MIN_CLASS_SHIFT = 8;
+    private static final int MAX_CLASS_SHIFT = 22;
+
+    private final Context context;
+    private final long capacity;
+    private final long maxIdleBytes;
+    private final List<ConcurrentLinkedDeque<RegisteredBuffer>> freeBuffers;
+    private final AtomicLong registeredBytes = new AtomicLong();
+    private final AtomicLong idleBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder registrations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deregistrations = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity     The maximum number of bytes the pool registers in total. Zero disables the pool.
+     * @param maxIdleBytes The maximum number of bytes that are kept registered while no operation uses them.
+     */
+    RegisteredBufferPool(final Context context, final long capacity, final long maxIdleBytes) {
+        this.context = context;
+        this.capacity = capacity;
+        this.maxIdleBytes = maxIdleBytes;
+        final List<ConcurrentLinkedDeque<RegisteredBuffer>> queues = new ArrayList<>();
+        for (int shift = MIN_CLASS_SHIFT; shift <= MAX_CLASS_SHIFT; shift++) {
+            queues.add(new ConcurrentLinkedDeque<>());
+        }
+        this.freeBuffers = List.copyOf(queues);
+    }
+
+    /**
+     * Returns the size class of the given size or -1 if the size is too large to be pooled.
+     */
+    static int sizeClass(final long size) {
+        final int shift = Math.max(MIN_CLASS_SHIFT, 64 - Long.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        return shift > MAX_CLASS_SHIFT ? -1 : shift - MIN_CLASS_SHIFT;
+    }
+
+    static long classSize(final int sizeClass) {
+        return 1L << (sizeClass + MIN_CLASS_SHIFT);
+    }
+
+    /**
+     * Takes a registered buffer of at least the given size from the pool.
+     *
+     * @return The buffer or null if the size is not pooled or the pool is exhausted.
+     */
+    RegisteredBuffer acquire(final long size) {
+        final int sizeClass = sizeClass(size);
+        if (closed || sizeClass < 0) {
+            misses.increment();
+            return null;
+        }
+        final RegisteredBuffer buffer = freeBuffers.get(sizeClass).pollFirst();
+        if (buffer != null) {
+            idleBytes.addAndGet(-buffer.size());
+            hits.increment();
+            return buffer;
+        }
+        return register(sizeClass);
+    }
+
+    private RegisteredBuffer register(final int sizeClass) {
+        final long size = classSize(sizeClass);
+        if (registeredBytes.addAndGet(size) > capacity) {
+            registeredBytes.addAndGet(-size);
+            misses.increment();
+            return null;
+        }
+        try {
+            final MemoryRegion region = context.allocateMemory(size);
+            registrations.increment();
+            return new RegisteredBuffer(region, sizeClass);
+        } catch (final ControlException e) {
+            log.warn("Registering a buffer of {} bytes failed: {}", size, e.getMessage());
+            registeredBytes.addAndGet(-size);
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Returns a buffer to the pool once no request accesses it anymore.
+     */
+    void release(final RegisteredBuffer buffer) {
+        if (closed) {
+            deregister(buffer);
+            return;
+        }
+        if (idleBytes.addAndGet(buffer.size()) > maxIdleBytes) {
+            idleBytes.addAndGet(-buffer.size());
+            deregister(buffer);
+            return;
+        }
+        freeBuffers.get(buffer.sizeClass()).addFirst(buffer);
+        if (closed && freeBuffers.get(buffer.sizeClass()).remove(buffer)) {
+            idleBytes.addAndGet(-buffer.size());
+            deregister(buffer);
+        }
+    }
+
+    private void deregister(final RegisteredBuffer buffer) {
+        buffer.region().close();
+        registeredBytes.addAndGet(-buffer.size());
+        deregistrations.increment();
+    }
+
+    /**
+     * Deregisters all buffers that are currently not in use.
+     */
+    void trim() {
+        for (final ConcurrentLinkedDeque<RegisteredBuffer> queue : freeBuffers) {
+            RegisteredBuffer buffer;
+            while ((buffer = queue.pollFirst()) != null) {
+                idleBytes.addAndGet(-buffer.size());
+                deregister(buffer);
+            }
+        }
+    }
+
+    BufferPoolStatistics statistics() {
+        return new BufferPoolStatistics(capacity, registeredBytes.get(), idleBytes.get(), hits.sum(),
+                registrations.sum(), misses.sum(), deregistrations.sum());
+    }
+
+    /**
+     * Frees all idle buffers. Buffers still in use are freed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        trim();
+    }
+
+    /**
+     * A registered memory region of one size class. Only the first bytes may be in use by a transfer.
+     */
+    record RegisteredBuffer(MemoryRegion region, int sizeClass) {
+        long size() {
+            return classSize(sizeClass);
+        }
+
+        MemorySegment segment(final long size) {
+            return region.segment().asSlice(0, size);
+        }
+    }
+}
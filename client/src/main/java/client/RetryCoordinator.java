@@ -0,0 +1,112 @@
+package client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies the {@link RetryPolicy} of a client and keeps the circuit breakers and counters, which all lanes share.
+ */
+final class RetryCoordinator {
+    /**
+     * Returned by {@link #onFailure} if the operation must not be retried.
+     */
+    static final long NO_RETRY = -1;
+
+    private final RetryPolicy policy;
+    private final Map<Integer, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder nonRetryable = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+    private final LongAdder breakerOpenings = new LongAdder();
+    private final LongAdder breakerRejections = new LongAdder();
+
+    RetryCoordinator(final RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the deadline of an operation submitted now, or 0 if the policy has none.
+     */
+    long deadlineFor(final long now) {
+        if (!policy.hasDeadline()) {
+            return 0;
+        }
+        final long deadline = now + policy.deadlineNanos();
+        return deadline == 0 ? 1 : deadline;
+    }
+
+    /**
+     * Returns whether an operation may be started on the given server right now.
+     */
+    boolean allows(final int serverID, final long now) {
+        if (breaker(serverID).tryAcquire(now)) {
+            return true;
+        }
+        breakerRejections.increment();
+        return false;
+    }
+
+    void onSuccess(final int serverID) {
+        final CircuitBreaker breaker = breakers.get(serverID);
+        if (breaker != null) {
+            breaker.onSuccess();
+        }
+    }
+
+    /**
+     * Records the failure of a whole connection with the circuit breaker of its server. The operations that were
+     * in progress on it are then passed to {@link #onFailure} without counting them again.
+     */
+    void onConnectionFailure(final int serverID, final long now) {
+        if (breaker(serverID).onFailure(now)) {
+            breakerOpenings.increment();
+        }
+    }
+
+    /**
+     * Records a failed attempt and decides about the next one. The operation is cleaned up for the next attempt,
+     * but not failed.
+     *
+     * @param countsForBreaker Whether the failure is recorded with the circuit breaker of the server, which is not
+     *                         the case if it was already recorded with {@link #onConnectionFailure}.
+     * @return The backoff in nanoseconds before the next attempt, or {@link #NO_RETRY}.
+     */
+    long onFailure(final Operation<?> operation, final Throwable failure, final long now, final boolean countsForBreaker) {
+        if (!policy.isRetryable(failure)) {
+            nonRetryable.increment();
+            operation.retry();
+            return NO_RETRY;
+        }
+        if (countsForBreaker && breaker(operation.serverID()).onFailure(now)) {
+            breakerOpenings.increment();
+        }
+        if (!operation.retry()) {
+            exhausted.increment();
+            return NO_RETRY;
+        }
+        final long backoff = policy.backoffNanos(operation.failedAttempts());
+        if (operation.hasDeadline() && now + backoff - operation.operationDeadline() >= 0) {
+            deadlinesExceeded.increment();
+            return NO_RETRY;
+        }
+        retries.increment();
+        return backoff;
+    }
+
+    private CircuitBreaker breaker(final int serverID) {
+        return breakers.computeIfAbsent(serverID, id -> new CircuitBreaker(policy.failureThreshold(), policy.openDurationNanos()));
+    }
+
+    RetryStatistics statistics() {
+        int openBreakers = 0;
+        for (final CircuitBreaker breaker : breakers.values()) {
+            if (breaker.isOpen()) {
+                openBreakers++;
+            }
+        }
+        return new RetryStatistics(retries.sum(), nonRetryable.sum(), exhausted.sum(), deadlinesExceeded.sum(),
+                breakerOpenings.sum(), breakerRejections.sum(), openBreakers);
+    }
+}
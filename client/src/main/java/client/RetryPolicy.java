@@ -0,0 +1,130 @@
+package client;
+
+import org.apache.commons.lang3.SerializationException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Decides whether and when a failed operation attempt is started again, and when a server is given a break.
+ * <p>
+ * Retries wait for an exponentially growing backoff with random jitter. An operation never runs longer than its
+ * deadline, no matter how many attempts it has left. Only failures the policy classifies as retryable are retried,
+ * by default timeouts and undecodable answers. Every server has a circuit breaker that opens after a number of
+ * consecutive retryable failures, rejects operations for that server while open and lets a single probe through
+ * once the open duration passed. The probe closes the breaker again if it succeeds.
+ * <p>
+ * Policies are immutable, the {@code with} methods return modified copies.
+ */
+public final class RetryPolicy {
+    private static final RetryPolicy DEFAULTS = new RetryPolicy(Duration.ofMillis(1), Duration.ofMillis(200), 0.5,
+            null, throwable -> throwable instanceof TimeoutException || throwable instanceof SerializationException,
+            10, Duration.ofSeconds(1));
+
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Duration deadline;
+    private final Predicate<Throwable> retryable;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private RetryPolicy(final Duration initialBackoff, final Duration maxBackoff, final double jitter, final Duration deadline,
+                        final Predicate<Throwable> retryable, final int failureThreshold, final Duration openDuration) {
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.deadline = deadline;
+        this.retryable = retryable;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns the default policy: backoff from 1 ms to 200 ms with 50 % jitter, no deadline, and breakers that open
+     * after 10 consecutive failures for one second.
+     */
+    public static RetryPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy whose backoff starts at the initial duration and doubles with every attempt up to the maximum.
+     */
+    public RetryPolicy withBackoff(final Duration initial, final Duration max) {
+        if (initial.isNegative() || max.compareTo(initial) < 0) {
+            throw new IllegalArgumentException("The backoff must be positive and the maximum at least the initial backoff");
+        }
+        return new RetryPolicy(initial, max, jitter, deadline, retryable, failureThreshold, openDuration);
+    }
+
+    /**
+     * Returns a copy that shortens every backoff by a random share of up to the given fraction.
+     */
+    public RetryPolicy withJitter(final double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("The jitter must be between 0 and 1");
+        }
+        return new RetryPolicy(initialBackoff, maxBackoff, jitter, deadline, retryable, failureThreshold, openDuration);
+    }
+
+    /**
+     * Returns a copy that fails operations once they ran for the given time, including all retries. Null removes
+     * the deadline.
+     */
+    public RetryPolicy withDeadline(final Duration deadline) {
+        return new RetryPolicy(initialBackoff, maxBackoff, jitter, deadline, retryable, failureThreshold, openDuration);
+    }
+
+    /**
+     * Returns a copy that only retries failures matching the given predicate.
+     */
+    public RetryPolicy withRetryableFailures(final Predicate<Throwable> retryable) {
+        return new RetryPolicy(initialBackoff, maxBackoff, jitter, deadline, retryable, failureThreshold, openDuration);
+    }
+
+    /**
+     * Returns a copy whose circuit breakers open after the given number of consecutive failures and stay open for
+     * the given duration. A threshold of zero disables the breakers.
+     */
+    public RetryPolicy withCircuitBreaker(final int failureThreshold, final Duration openDuration) {
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("The failure threshold must not be negative");
+        }
+        return new RetryPolicy(initialBackoff, maxBackoff, jitter, deadline, retryable, failureThreshold, openDuration);
+    }
+
+    /**
+     * Returns the time to wait before the next attempt after the given number of failed attempts.
+     */
+    long backoffNanos(final int failedAttempts) {
+        final long initial = initialBackoff.toNanos();
+        final long max = maxBackoff.toNanos();
+        final int doublings = Math.min(Math.max(failedAttempts - 1, 0), 62);
+        final long backoff = initial > (max >> doublings) ? max : initial << doublings;
+        final long reduction = (long) (backoff * jitter * ThreadLocalRandom.current().nextDouble());
+        return backoff - reduction;
+    }
+
+    boolean hasDeadline() {
+        return deadline != null;
+    }
+
+    long deadlineNanos() {
+        return deadline.toNanos();
+    }
+
+    boolean isRetryable(final Throwable throwable) {
+        return retryable.test(throwable);
+    }
+
+    int failureThreshold() {
+        return failureThreshold;
+    }
+
+    long openDurationNanos() {
+        return openDuration.toNanos();
+    }
+}
@@ -0,0 +1,16 @@
+package client;
+
+/**
+ * A snapshot of the retries of a {@link DPwRClient}.
+ *
+ * @param retries             How often a failed attempt was started again.
+ * @param nonRetryable        How often an attempt failed in a way the {@link RetryPolicy} does not retry.
+ * @param exhausted           How often an operation failed because it ran out of attempts.
+ * @param deadlinesExceeded   How often an operation failed because the next attempt would miss its deadline.
+ * @param breakerOpenings     How often a circuit breaker opened.
+ * @param breakerRejections   How often an operation was rejected because the breaker of its server was open.
+ * @param openBreakers        The number of servers whose breaker is currently open.
+ */
+public record RetryStatistics(long retries, long nonRetryable, long exhausted, long deadlinesExceeded,
+                              long breakerOpenings, long breakerRejections, int openBreakers) {
+}
@@ -0,0 +1,17 @@
+package client;
+
+/**
+ * What happens to operations for a server whose connection failed, until a reconnect to it succeeded.
+ */
+public enum ServerFailurePolicy {
+    /**
+     * Operations for the server fail immediately.
+     */
+    FAIL_FAST,
+
+    /**
+     * Operations for the server wait for the reconnect. Every failed reconnect attempt uses up one attempt of each
+     * waiting operation, so they still fail once they run out of attempts.
+     */
+    AWAIT_RECONNECT
+}
@@ -0,0 +1,37 @@
+package client;
+
+/**
+ * Hands out the tag IDs of one connection if {@link ProtocolFeature#CLIENT_TAG_IDS} is enabled.
+ * <p>
+ * The upper 32 bits of each tag ID hold the prefix leased from the server when the connection was set up. The prefix
+ * is never zero, so the tag IDs never collide with tag IDs assigned by a server. A server never hands out the same
+ * prefix twice, but different servers may, and the receives of a lane do not filter by sender. The lower 32 bits
+ * therefore start with the slot of the connection within its lane, followed by a counter. The tag IDs of a lane are
+ * unique as long as it is connected to at most {@link #MAX_SLOTS} servers and no operation outlives a wrap around of
+ * the counter.
+ */
+final class TagAllocator {
+    static final int MAX_SLOTS = 1 << 12;
+    private static final int COUNTER_BITS = Integer.SIZE - Integer.numberOfTrailingZeros(MAX_SLOTS);
+    private static final int COUNTER_MASK = (1 << COUNTER_BITS) - 1;
+
+    private final long base;
+    private int counter = 0;
+
+    /**
+     * @param leasedTagID The prefix leased from the server, must not be zero.
+     * @param slot        The slot of the connection within its lane.
+     */
+    TagAllocator(final int leasedTagID, final int slot) {
+        if (leasedTagID == 0) {
+            throw new IllegalArgumentException("The leased tag ID prefix must not be zero");
+        }
+        this.base = Integer.toUnsignedLong(leasedTagID) << Integer.SIZE
+                | Integer.toUnsignedLong(slot % MAX_SLOTS) << COUNTER_BITS;
+    }
+
+    long next() {
+        counter = (counter + 1) & COUNTER_MASK;
+        return base | counter;
+    }
+}
@@ -0,0 +1,741 @@
+package client;
+
+import de.hhu.bsinfo.infinileap.binding.Context;
+import de.hhu.bsinfo.infinileap.binding.ControlException;
+import de.hhu.bsinfo.infinileap.binding.Endpoint;
+import de.hhu.bsinfo.infinileap.binding.EndpointParameters;
+import de.hhu.bsinfo.infinileap.binding.ErrorHandler;
+import de.hhu.bsinfo.infinileap.binding.Status;
+import de.hhu.bsinfo.infinileap.binding.ThreadMode;
+import de.hhu.bsinfo.infinileap.binding.Worker;
+import de.hhu.bsinfo.infinileap.binding.WorkerParameters;
+import de.hhu.bsinfo.infinileap.util.Requests;
+import exceptions.DuplicateKeyException;
+import exceptions.KeyNotFoundException;
+import jdk.incubator.foreign.MemoryAddress;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import utils.DPwRErrorHandler;
+import utils.ScratchArena;
+import utils.WaitStrategy;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static de.hhu.bsinfo.infinileap.util.Requests.State.COMPLETE;
+import static de.hhu.bsinfo.infinileap.util.Requests.State.ERROR;
+import static de.hhu.bsinfo.infinileap.util.Requests.state;
+import static utils.CommunicationUtils.awaitRequests;
+
+/**
+ * The per-thread part of a {@link DPwRClient}.
+ * <p>
+ * All lanes of a client share its UCX context, but every lane owns a single threaded worker, its own endpoints
+ * and its own tag ID. A lane must only be used by the thread that created it.
+ * <p>
+ * Operations submitted to a lane are advanced by {@link #poll()}. Every operation waits for its own requests and
+ * completes as soon as they finished, independent of the other operations. Up to the pipeline depth of the lane are
+ * in progress per server at a time, further operations for the same server wait in a backlog until one of them
+ * completes. Pipelining requires client allocated tag IDs, because only then every operation has its own tag from
+ * the start, so without them and while a connection still leases its tag ID prefix the depth is one. Without client
+ * allocated tag IDs only one operation of the whole lane is in progress at a time, because different servers may
+ * assign the same tag ID and the receives on the shared worker do not filter by sender.
+ * <p>
+ * Connections that UCX reports as failed are dropped while the worker is progressed. The lane then reconnects in the
+ * background and handles the operations for that server according to its {@link ServerFailurePolicy}. A single
+ * operation that fails or is cancelled only marks its connection as stale, because the server may still be in the
+ * middle of the abandoned exchange. The other operations in progress on the connection keep it, no new ones are
+ * started on it, and it is closed once the last of them finished.
+ * <p>
+ * Failed attempts are retried according to the {@link RetryPolicy} of the client. A retry waits for its backoff
+ * outside of the backlog, so that other operations for the same server keep going, and operations for a server
+ * whose circuit breaker is open fail without being sent.
+ */
+@Slf4j
+final class WorkerLane implements AutoCloseable {
+    private static final long RECONNECT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_RECONNECT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Context context;
+    private final RegisteredBufferPool bufferPool;
+    private final Thread owner;
+    private final Supplier<Map<Integer, InetSocketAddress>> serverMap;
+    private final ErrorHandler errorHandler = new DPwRErrorHandler(this::onEndpointError);
+    private final Set<ProtocolFeature> protocolFeatures;
+    private final WaitStrategy waitStrategy;
+    private final int pipelineDepth;
+    private final ServerFailurePolicy failurePolicy;
+    private final long reconnectTimeoutNanos;
+    private final RetryCoordinator retries;
+    private final int inlineThreshold;
+    private final List<Operation<?>> delayedRetries = new ArrayList<>();
+    private final Queue<MemoryAddress> failedEndpoints = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, Reconnect> reconnects = new HashMap<>();
+    private final Map<Integer, Endpoint> endpointMap = new HashMap<>();
+    private final Map<Integer, TagAllocator> tagAllocators = new HashMap<>();
+    private final Map<Integer, Integer> connectionSlots = new HashMap<>();
+    private final ArrayDeque<ScratchArena> scratchArenas = new ArrayDeque<>();
+    private final List<Operation<?>> activeOperations = new ArrayList<>();
+    private final Map<Integer, ArrayDeque<Operation<?>>> backlog = new HashMap<>();
+    private final Map<Integer, Integer> operationsInProgress = new HashMap<>();
+    private final Set<Integer> staleConnections = new HashSet<>();
+    private final Worker worker;
+    private boolean progressed;
+    private int openCursors;
+    private Endpoint currentEndpoint;
+    private int tagID;
+
+    WorkerLane(final Context context, final RegisteredBufferPool bufferPool, final Supplier<Map<Integer, InetSocketAddress>> serverMap, final LaneSettings settings) throws ControlException {
+        this.context = context;
+        this.bufferPool = bufferPool;
+        this.owner = Thread.currentThread();
+        this.serverMap = serverMap;
+        this.protocolFeatures = settings.protocolFeatures();
+        this.waitStrategy = settings.waitStrategy();
+        this.pipelineDepth = Math.max(1, settings.pipelineDepth());
+        this.failurePolicy = settings.failurePolicy();
+        this.reconnectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.serverTimeout());
+        this.retries = settings.retries();
+        this.inlineThreshold = supports(ProtocolFeature.INLINE_VALUES) && supports(ProtocolFeature.REQUEST_FRAMES) ? settings.inlineThreshold() : 0;
+        this.worker = createWorker(context);
+    }
+
+    private static Worker createWorker(final Context context) throws ControlException {
+        log.info("Creating worker");
+        final WorkerParameters workerParameters = new WorkerParameters().setThreadMode(ThreadMode.SINGLE);
+        return context.createWorker(workerParameters);
+    }
+
+    Context context() {
+        return context;
+    }
+
+    RegisteredBufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    boolean isOwnedByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+
+    Worker worker() {
+        return worker;
+    }
+
+    WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Returns an arena for the control messages of one operation attempt, reusing a released one if possible.
+     */
+    ScratchArena acquireScratchArena() {
+        final ScratchArena arena = this.scratchArenas.poll();
+        return arena == null ? new ScratchArena() : arena;
+    }
+
+    void releaseScratchArena(final ScratchArena arena) {
+        arena.reset();
+        this.scratchArenas.push(arena);
+    }
+
+    Endpoint currentEndpoint() {
+        return currentEndpoint;
+    }
+
+    void setCurrentEndpoint(final Endpoint currentEndpoint) {
+        this.currentEndpoint = currentEndpoint;
+    }
+
+    int tagID() {
+        return tagID;
+    }
+
+    void setTagID(final int tagID) {
+        this.tagID = tagID;
+    }
+
+    Endpoint getEndpoint(final int serverID) {
+        return endpointMap.get(serverID);
+    }
+
+    void putEndpoint(final int serverID, final Endpoint endpoint) {
+        endpointMap.put(serverID, endpoint);
+        tagAllocators.remove(serverID);
+    }
+
+    /**
+     * Closes the connection to the server if there is one and forgets it, the next operation connects again.
+     */
+    void dropEndpoint(final int serverID) {
+        final Endpoint endpoint = endpointMap.get(serverID);
+        putEndpoint(serverID, null);
+        staleConnections.remove(serverID);
+        if (endpoint != null) {
+            endpoint.close();
+        }
+    }
+
+    boolean isInProgress(final Operation<?> operation) {
+        return activeOperations.contains(operation);
+    }
+
+    void cursorOpened() {
+        openCursors++;
+    }
+
+    void cursorClosed() {
+        openCursors--;
+    }
+
+    /**
+     * Fails fast if a {@link ListCursor} of this lane is open. Its listings hold the lane while the consumer does
+     * not take their objects, so an operation waited for by the same thread could never complete.
+     */
+    void checkNoOpenCursor() {
+        if (openCursors > 0) {
+            throw new IllegalStateException("A listing stream of this thread is still open, close it first");
+        }
+    }
+
+    boolean supports(final ProtocolFeature feature) {
+        return protocolFeatures.contains(feature);
+    }
+
+    /**
+     * Returns the size in bytes up to which entries travel inside of the request and response frames, zero if
+     * {@link ProtocolFeature#INLINE_VALUES} is not in effect.
+     */
+    int inlineThreshold() {
+        return inlineThreshold;
+    }
+
+    /**
+     * Returns the tag allocator of the connection to the given server, or null if no prefix was leased yet.
+     */
+    TagAllocator tagAllocator(final int serverID) {
+        return tagAllocators.get(serverID);
+    }
+
+    /**
+     * Creates the tag allocator for the prefix the given server leased to this lane. The connection keeps its slot
+     * in the tag IDs across reconnects.
+     *
+     * @throws TimeoutException If the server leased the prefix zero, which is reserved for server assigned tag IDs.
+     */
+    TagAllocator leaseTagAllocator(final int serverID, final int leasedTagID) throws TimeoutException {
+        if (leasedTagID == 0) {
+            throw new TimeoutException("Server " + serverID + " leased the reserved tag ID prefix zero");
+        }
+        final int slot = connectionSlots.computeIfAbsent(serverID, id -> connectionSlots.size());
+        final TagAllocator allocator = new TagAllocator(leasedTagID, slot);
+        tagAllocators.put(serverID, allocator);
+        return allocator;
+    }
+
+    Set<Integer> endpointIDs() {
+        return endpointMap.keySet();
+    }
+
+    Endpoint getOrCreateEndpoint(final int serverID) throws ControlException {
+        final Endpoint endpoint = this.endpointMap.get(serverID);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        return establishConnection(this.serverMap.get().get(serverID), serverID, 5);
+    }
+
+    /**
+     * Creates the missing endpoints to all known servers at once and then flushes every endpoint, which only
+     * completes once the connection is fully wired up. The connections are therefore established in parallel and
+     * before the first operation needs them.
+     */
+    void connectAll(final int timeoutMs) throws ControlException, TimeoutException {
+        final List<Integer> serverIDs = new ArrayList<>(this.serverMap.get().keySet());
+        final long[] requests = new long[serverIDs.size()];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = getOrCreateEndpoint(serverIDs.get(i)).flush();
+        }
+        awaitRequests(requests, this.worker, this.waitStrategy, timeoutMs);
+        log.info("Connected to {} servers", requests.length);
+    }
+
+    private Endpoint createEndpoint(final InetSocketAddress serverAddress) throws ControlException {
+        log.info("Creating Endpoint");
+        final EndpointParameters endpointParameters = new EndpointParameters()
+                .setRemoteAddress(serverAddress)
+                .setErrorHandler(errorHandler)
+                .enableClientIdentifier();
+        return this.worker.createEndpoint(endpointParameters);
+    }
+
+    Endpoint establishConnection(final InetSocketAddress serverAddress, final int serverID, final int attempts) throws ControlException {
+        try {
+            this.currentEndpoint = createEndpoint(serverAddress);
+            putEndpoint(serverID, this.currentEndpoint);
+        } catch (final ControlException e) {
+            log.error(e.getMessage());
+            if (attempts > 0) {
+                return establishConnection(serverAddress, serverID, attempts - 1);
+            } else {
+                throw e;
+            }
+        }
+        return this.currentEndpoint;
+    }
+
+    /**
+     * Queues the operation and starts it right away if no other operation is in progress on its server.
+     */
+    void submit(final Operation<?> operation) {
+        operation.setOperationDeadline(this.retries.deadlineFor(System.nanoTime()));
+        this.backlog.computeIfAbsent(operation.serverID(), id -> new ArrayDeque<>()).add(operation);
+        startNext(operation.serverID());
+    }
+
+    private void startNext(final int serverID) {
+        final ArrayDeque<Operation<?>> queue = this.backlog.get(serverID);
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+        if (this.reconnects.containsKey(serverID)) {
+            if (this.failurePolicy == ServerFailurePolicy.FAIL_FAST) {
+                for (final Operation<?> operation : queue) {
+                    operation.fail(unavailable(serverID));
+                }
+                queue.clear();
+            }
+            return;
+        }
+        final long now = System.nanoTime();
+        while (!queue.isEmpty() && this.operationsInProgress.getOrDefault(serverID, 0) < window(serverID) && !awaitingServerTagID() && !retiringConnection(serverID)) {
+            final Operation<?> operation = queue.poll();
+            if (operation.hasDeadline() && now - operation.operationDeadline() >= 0) {
+                operation.fail(new TimeoutException("The operation exceeded its deadline"));
+                continue;
+            }
+            if (!this.retries.allows(serverID, now)) {
+                operation.fail(new TimeoutException("The circuit breaker of server " + serverID + " is open"));
+                continue;
+            }
+            try {
+                operation.start(this, getOrCreateEndpoint(serverID));
+                this.operationsInProgress.merge(serverID, 1, Integer::sum);
+                this.activeOperations.add(operation);
+            } catch (final TimeoutException | SerializationException e) {
+                retryOrFail(operation, e, true);
+            } catch (final KeyNotFoundException | DuplicateKeyException e) {
+                this.retries.onSuccess(serverID);
+                operation.fail(e);
+            } catch (final ControlException e) {
+                operation.fail(e);
+            } catch (final RuntimeException e) {
+                failUnexpectedly(operation, e);
+            }
+        }
+    }
+
+    /**
+     * Progresses the worker once and advances every operation whose requests completed.
+     *
+     * @return Whether operations are still in progress or waiting on this lane.
+     */
+    boolean poll() {
+        this.progressed = this.worker.progress();
+        final long now = System.nanoTime();
+        if (!this.failedEndpoints.isEmpty()) {
+            handleEndpointFailures();
+        }
+        if (!this.reconnects.isEmpty()) {
+            advanceReconnects(now);
+        }
+        if (!this.delayedRetries.isEmpty()) {
+            startDueRetries(now);
+        }
+        if (this.activeOperations.isEmpty()) {
+            return !this.delayedRetries.isEmpty() || awaitingReconnect();
+        }
+        final List<Operation<?>> finished = new ArrayList<>();
+        for (final Operation<?> operation : this.activeOperations) {
+            if (advance(operation, now)) {
+                finished.add(operation);
+            }
+        }
+        for (final Operation<?> operation : finished) {
+            this.activeOperations.remove(operation);
+            this.operationsInProgress.merge(operation.serverID(), -1, Integer::sum);
+        }
+        if (!this.staleConnections.isEmpty()) {
+            for (final int serverID : new ArrayList<>(this.staleConnections)) {
+                retiringConnection(serverID);
+            }
+        }
+        // Also fills windows that opened because a connection finished leasing its tag ID prefix
+        for (final Map.Entry<Integer, ArrayDeque<Operation<?>>> entry : this.backlog.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                startNext(entry.getKey());
+            }
+        }
+        return !this.activeOperations.isEmpty() || !this.delayedRetries.isEmpty() || awaitingReconnect();
+    }
+
+    /**
+     * Moves the retries whose backoff passed to the front of their backlog and starts them if possible.
+     */
+    private void startDueRetries(final long now) {
+        final List<Integer> servers = new ArrayList<>();
+        this.delayedRetries.removeIf(operation -> {
+            if (now - operation.retryAt() < 0) {
+                return false;
+            }
+            this.backlog.computeIfAbsent(operation.serverID(), id -> new ArrayDeque<>()).addFirst(operation);
+            servers.add(operation.serverID());
+            return true;
+        });
+        for (final int serverID : servers) {
+            startNext(serverID);
+        }
+    }
+
+    /**
+     * Called by UCX while the worker is progressed.
+     */
+    private void onEndpointError(final MemoryAddress endpoint, final Status status) {
+        this.failedEndpoints.add(endpoint);
+    }
+
+    private void handleEndpointFailures() {
+        MemoryAddress failedEndpoint;
+        while ((failedEndpoint = this.failedEndpoints.poll()) != null) {
+            Integer serverID = null;
+            for (final Map.Entry<Integer, Endpoint> entry : this.endpointMap.entrySet()) {
+                if (entry.getValue() != null && entry.getValue().address().toRawLongValue() == failedEndpoint.toRawLongValue()) {
+                    serverID = entry.getKey();
+                    break;
+                }
+            }
+            if (serverID != null) {
+                markFailed(serverID);
+            }
+        }
+    }
+
+    /**
+     * Drops the connection to the server, fails its operations in progress at once and starts reconnecting.
+     */
+    private void markFailed(final int serverID) {
+        log.warn("The connection to server {} failed, reconnecting", serverID);
+        dropEndpoint(serverID);
+        this.reconnects.putIfAbsent(serverID, new Reconnect());
+        final List<Operation<?>> failed = new ArrayList<>();
+        for (final Operation<?> operation : this.activeOperations) {
+            if (operation.serverID() == serverID) {
+                failed.add(operation);
+            }
+        }
+        // One lost connection is one failure of the server, however many operations were in progress on it
+        this.retries.onConnectionFailure(serverID, System.nanoTime());
+        for (final Operation<?> operation : failed) {
+            this.activeOperations.remove(operation);
+            this.operationsInProgress.merge(serverID, -1, Integer::sum);
+            retryOrFail(operation, new TimeoutException("The connection to server " + serverID + " failed"), false);
+        }
+        startNext(serverID);
+    }
+
+    /**
+     * Probes every failed server whose next reconnect is due by creating a new endpoint and flushing it. The
+     * reconnect only succeeds once the flush completed, afterwards the waiting operations are started.
+     */
+    private void advanceReconnects(final long now) {
+        final List<Integer> recovered = new ArrayList<>();
+        final List<Integer> abandoned = new ArrayList<>();
+        for (final Map.Entry<Integer, Reconnect> entry : this.reconnects.entrySet()) {
+            final int serverID = entry.getKey();
+            final Reconnect reconnect = entry.getValue();
+            if (!reconnect.probing) {
+                if (!this.serverMap.get().containsKey(serverID)) {
+                    abandoned.add(serverID);
+                } else if (now - reconnect.nextProbe >= 0) {
+                    startProbe(serverID, reconnect, now);
+                }
+                continue;
+            }
+            final Requests.State probeState = state(reconnect.probe);
+            if (probeState == COMPLETE) {
+                Requests.release(reconnect.probe);
+                reconnect.probing = false;
+                putEndpoint(serverID, reconnect.endpoint);
+                recovered.add(serverID);
+            } else if (probeState == ERROR || now - reconnect.probeDeadline > 0) {
+                this.worker.cancelRequest(reconnect.probe);
+                probeFailed(serverID, reconnect, now);
+            }
+        }
+        for (final int serverID : recovered) {
+            log.info("Reconnected to server {}", serverID);
+            this.reconnects.remove(serverID);
+            startNext(serverID);
+        }
+        for (final int serverID : abandoned) {
+            log.info("Server {} left the cluster, stopped reconnecting", serverID);
+            this.reconnects.remove(serverID);
+            final ArrayDeque<Operation<?>> queue = this.backlog.get(serverID);
+            if (queue != null) {
+                for (final Operation<?> operation : queue) {
+                    operation.fail(unavailable(serverID));
+                }
+                queue.clear();
+            }
+        }
+    }
+
+    private void startProbe(final int serverID, final Reconnect reconnect, final long now) {
+        try {
+            reconnect.endpoint = createEndpoint(this.serverMap.get().get(serverID));
+            reconnect.probe = reconnect.endpoint.flush();
+            reconnect.probeDeadline = now + this.reconnectTimeoutNanos;
+            reconnect.probing = true;
+        } catch (final ControlException e) {
+            probeFailed(serverID, reconnect, now);
+        }
+    }
+
+    private void probeFailed(final int serverID, final Reconnect reconnect, final long now) {
+        reconnect.probing = false;
+        if (reconnect.endpoint != null) {
+            reconnect.endpoint.close();
+            reconnect.endpoint = null;
+        }
+        reconnect.failedProbes++;
+        reconnect.nextProbe = now + Math.min(MAX_RECONNECT_DELAY_NANOS, RECONNECT_DELAY_NANOS << Math.min(reconnect.failedProbes, 16));
+        log.warn("Reconnecting to server {} failed {} times", serverID, reconnect.failedProbes);
+        final ArrayDeque<Operation<?>> queue = this.backlog.get(serverID);
+        if (queue == null) {
+            return;
+        }
+        queue.removeIf(operation -> {
+            if (operation.retry() && !(operation.hasDeadline() && now - operation.operationDeadline() >= 0)) {
+                return false;
+            }
+            operation.fail(unavailable(serverID));
+            return true;
+        });
+    }
+
+    /**
+     * Whether operations wait for a server to come back.
+     */
+    private boolean awaitingReconnect() {
+        for (final int serverID : this.reconnects.keySet()) {
+            final ArrayDeque<Operation<?>> queue = this.backlog.get(serverID);
+            if (queue != null && !queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TimeoutException unavailable(final int serverID) {
+        return new TimeoutException("Server " + serverID + " is unavailable");
+    }
+
+    /**
+     * Returns how many operations may be in progress on the connection to the given server.
+     */
+    private int window(final int serverID) {
+        if (this.pipelineDepth == 1 || !supports(ProtocolFeature.CLIENT_TAG_IDS) || tagAllocator(serverID) == null) {
+            return 1;
+        }
+        return this.pipelineDepth;
+    }
+
+    /**
+     * Whether the connection to the server is stale and still in use by operations in progress, so that no further
+     * operation may start on it. A stale connection without operations is closed, the next operation connects again.
+     */
+    private boolean retiringConnection(final int serverID) {
+        if (!this.staleConnections.contains(serverID)) {
+            return false;
+        }
+        if (this.operationsInProgress.getOrDefault(serverID, 0) > 0) {
+            return true;
+        }
+        dropEndpoint(serverID);
+        return false;
+    }
+
+    /**
+     * Marks the connection to the server as stale after one of its operations was abandoned.
+     */
+    private void markStale(final int serverID) {
+        if (this.endpointMap.get(serverID) != null) {
+            this.staleConnections.add(serverID);
+        }
+    }
+
+    /**
+     * Marks the connection to the server as stale and closes it right away if no operation is in progress on it.
+     */
+    void abandonConnection(final int serverID) {
+        markStale(serverID);
+        retiringConnection(serverID);
+    }
+
+    /**
+     * Whether an operation of this lane is in progress with a tag ID assigned by its server, which a tag ID assigned
+     * by another server could collide with.
+     */
+    private boolean awaitingServerTagID() {
+        return !supports(ProtocolFeature.CLIENT_TAG_IDS) && !this.activeOperations.isEmpty();
+    }
+
+    /**
+     * Waits according to the wait strategy of the client if the last {@link #poll()} found nothing to do.
+     *
+     * @param idleRounds The number of idle polls that directly preceded the last one.
+     * @return The number of idle polls including the last one.
+     */
+    int idle(final int idleRounds) {
+        if (this.progressed) {
+            return 0;
+        }
+        this.waitStrategy.idle(this.worker, idleRounds, System.nanoTime() + WaitStrategy.MAX_AWAIT_NANOS);
+        return idleRounds + 1;
+    }
+
+    private boolean advance(final Operation<?> operation, final long now) {
+        try {
+            final boolean done = operation.poll(now);
+            if (done) {
+                this.retries.onSuccess(operation.serverID());
+            }
+            return done;
+        } catch (final TimeoutException | SerializationException e) {
+            retryOrFail(operation, e, true);
+        } catch (final KeyNotFoundException | DuplicateKeyException e) {
+            this.retries.onSuccess(operation.serverID());
+            operation.fail(e);
+        } catch (final ControlException e) {
+            operation.fail(e);
+        } catch (final RuntimeException e) {
+            failUnexpectedly(operation, e);
+        }
+        return true;
+    }
+
+    /**
+     * Fails an operation whose state machine threw an unchecked exception, which is reported like a network error
+     * so that it does not escape the thread driving the lane.
+     */
+    private static void failUnexpectedly(final Operation<?> operation, final RuntimeException exception) {
+        log.error("An operation on server {} failed unexpectedly", operation.serverID(), exception);
+        final TimeoutException failure = new TimeoutException(String.valueOf(exception.getMessage()));
+        failure.initCause(exception);
+        operation.fail(failure);
+    }
+
+    /**
+     * Schedules the next attempt of a failed operation after its backoff, or fails it if the retry policy says so.
+     *
+     * @param countsForBreaker Whether the failure counts for the circuit breaker of the server, which a failed
+     *                         connection already recorded once for all of its operations.
+     */
+    private void retryOrFail(final Operation<?> operation, final Exception exception, final boolean countsForBreaker) {
+        log.warn(exception.getMessage());
+        final long now = System.nanoTime();
+        final long backoff = this.retries.onFailure(operation, exception, now, countsForBreaker);
+        if (backoff == RetryCoordinator.NO_RETRY) {
+            operation.fail(new TimeoutException(exception.getMessage()));
+            return;
+        }
+        log.warn("Retry operation on server {}", operation.serverID());
+        markStale(operation.serverID());
+        if (backoff == 0) {
+            this.backlog.computeIfAbsent(operation.serverID(), id -> new ArrayDeque<>()).addFirst(operation);
+        } else {
+            operation.setRetryAt(now + backoff);
+            this.delayedRetries.add(operation);
+        }
+    }
+
+    /**
+     * Fails an operation that was submitted to this lane and is not done yet. An operation in progress also marks
+     * its connection as stale, because the server may still be in the middle of the abandoned exchange.
+     */
+    void cancel(final Operation<?> operation, final Throwable throwable) {
+        if (operation.isDone()) {
+            return;
+        }
+        if (this.activeOperations.remove(operation)) {
+            this.operationsInProgress.merge(operation.serverID(), -1, Integer::sum);
+            abandonConnection(operation.serverID());
+        } else {
+            final ArrayDeque<Operation<?>> queue = this.backlog.get(operation.serverID());
+            if (queue != null) {
+                queue.remove(operation);
+            }
+            this.delayedRetries.remove(operation);
+        }
+        operation.fail(throwable);
+    }
+
+    /**
+     * Fails all operations that are in progress or waiting on this lane.
+     */
+    void failAll(final Throwable throwable) {
+        for (final Operation<?> operation : this.activeOperations) {
+            operation.fail(throwable);
+        }
+        this.activeOperations.clear();
+        this.operationsInProgress.clear();
+        for (final ArrayDeque<Operation<?>> queue : this.backlog.values()) {
+            for (final Operation<?> operation : queue) {
+                operation.fail(throwable);
+            }
+            queue.clear();
+        }
+        for (final Operation<?> operation : this.delayedRetries) {
+            operation.fail(throwable);
+        }
+        this.delayedRetries.clear();
+    }
+
+    /**
+     * The state of reconnecting to a failed server.
+     */
+    private static final class Reconnect {
+        private int failedProbes;
+        private long nextProbe = System.nanoTime();
+        private boolean probing;
+        private Endpoint endpoint;
+        private long probe;
+        private long probeDeadline;
+    }
+
+    @Override
+    public void close() {
+        for (final Endpoint endpoint : endpointMap.values()) {
+            if (endpoint != null) {
+                endpoint.close();
+            }
+        }
+        endpointMap.clear();
+        for (final ScratchArena arena : scratchArenas) {
+            arena.close();
+        }
+        scratchArenas.clear();
+        worker.close();
+    }
+}
@@ -7,12 +7,15 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 @AllArgsConstructor
 @NoArgsConstructor
 public class PlasmaEntry implements Externalizable {
     public static final long serialVersionUID = 4328703L;
+    public static final int NEXT_PLASMA_ID_SIZE = 20;
 
     public String key;
     public byte[] value;
@@ -53,16 +56,69 @@ public class PlasmaEntry implements Externalizable {
     public void readExternal(final ObjectInput in) throws IOException {
         this.key = in.readUTF();
 
-        final int size = in.available()-20;
+        final int size = in.available() - NEXT_PLASMA_ID_SIZE;
         this.value = new byte[size];
-        for (int i = 0; i < size; i++) {
-            this.value[i] = in.readByte();
-        }
+        in.readFully(this.value);
 
-        final int size2 = 20;
-        this.nextPlasmaID = new byte[size2];
-        for (int i = 0; i < size2; i++) {
-            this.nextPlasmaID[i] = in.readByte();
-        }
+        this.nextPlasmaID = new byte[NEXT_PLASMA_ID_SIZE];
+        in.readFully(this.nextPlasmaID);
+    }
+
+    /**
+     * Returns the size of an entry in the compact layout: key length, key, value length, value and next plasma ID.
+     */
+    public static int compactSize(final int keyLength, final int valueLength) {
+        return compactHeaderSize(keyLength) + valueLength + NEXT_PLASMA_ID_SIZE;
+    }
+
+    /**
+     * Returns the size of everything in front of the value in the compact layout, which is also the offset of the value.
+     */
+    public static int compactHeaderSize(final int keyLength) {
+        return Integer.BYTES + keyLength + Integer.BYTES;
+    }
+
+    /**
+     * Writes the key length, the key and the value length of an entry in the compact layout.
+     */
+    public static void writeCompactHeader(final ByteBuffer target, final byte[] keyBytes, final int valueLength) {
+        target.putInt(keyBytes.length)
+                .put(keyBytes)
+                .putInt(valueLength);
+    }
+
+    /**
+     * Writes an entry in the compact layout at the current position of the buffer.
+     */
+    public static void writeCompact(final ByteBuffer target, final byte[] keyBytes, final byte[] value, final byte[] nextPlasmaID) {
+        writeCompactHeader(target, keyBytes, value.length);
+        target.put(value)
+                .put(nextPlasmaID, 0, NEXT_PLASMA_ID_SIZE);
+    }
+
+    public void writeCompact(final ByteBuffer target) {
+        writeCompact(target, key.getBytes(StandardCharsets.UTF_8), value, nextPlasmaID);
+    }
+
+    /**
+     * Reads an entry in the compact layout from the current position of the buffer.
+     */
+    public static PlasmaEntry readCompact(final ByteBuffer source) {
+        final byte[] keyBytes = new byte[source.getInt()];
+        source.get(keyBytes);
+        final byte[] value = new byte[source.getInt()];
+        source.get(value);
+        final byte[] nextPlasmaID = new byte[NEXT_PLASMA_ID_SIZE];
+        source.get(nextPlasmaID);
+        return new PlasmaEntry(new String(keyBytes, StandardCharsets.UTF_8), value, nextPlasmaID);
+    }
+
+    /**
+     * Returns the value of the compact entry at the current position of the buffer as a view, without copying it.
+     */
+    public static ByteBuffer compactValue(final ByteBuffer source) {
+        final int valueLengthOffset = source.position() + Integer.BYTES + source.getInt(source.position());
+        final int valueLength = source.getInt(valueLengthOffset);
+        return source.slice(valueLengthOffset + Integer.BYTES, valueLength);
     }
 }
@@ -0,0 +1,60 @@
+package utils;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact binary encoding of resolved socket addresses: the length of the IP address (4 or 16), the address bytes
+ * and the port as an unsigned 16 bit number, all in network byte order.
+ */
+public final class AddressEncoding {
+    private AddressEncoding() {
+    }
+
+    public static int encodedSize(final InetSocketAddress address) {
+        return Byte.BYTES + resolve(address).getAddress().length + Short.BYTES;
+    }
+
+    public static void encode(final InetSocketAddress address, final ByteBuffer target) {
+        final byte[] ip = resolve(address).getAddress();
+        target.put((byte) ip.length)
+                .put(ip)
+                .putShort((short) address.getPort());
+    }
+
+    public static byte[] encode(final InetSocketAddress address) {
+        final ByteBuffer buffer = ByteBuffer.allocate(encodedSize(address));
+        encode(address, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Reads an encoded address and advances the buffer past it.
+     *
+     * @throws IllegalArgumentException If the buffer does not hold a valid address.
+     */
+    public static InetSocketAddress decode(final ByteBuffer source) {
+        final int length = Byte.toUnsignedInt(source.get());
+        if (length != 4 && length != 16) {
+            throw new IllegalArgumentException("Invalid IP address length " + length);
+        }
+        final byte[] ip = new byte[length];
+        source.get(ip);
+        final int port = Short.toUnsignedInt(source.getShort());
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(ip), port);
+        } catch (final UnknownHostException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static InetAddress resolve(final InetSocketAddress address) {
+        final InetAddress inetAddress = address.getAddress();
+        if (inetAddress == null) {
+            throw new IllegalArgumentException("The address " + address + " is not resolved");
+        }
+        return inetAddress;
+    }
+}
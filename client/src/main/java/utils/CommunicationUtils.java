@@ -1,10 +1,8 @@
 package utils;
 
-import de.hhu.bsinfo.infinileap.binding.ControlException;
 import de.hhu.bsinfo.infinileap.binding.DataType;
 import de.hhu.bsinfo.infinileap.binding.Endpoint;
 import de.hhu.bsinfo.infinileap.binding.MemoryDescriptor;
-import de.hhu.bsinfo.infinileap.binding.RemoteKey;
 import de.hhu.bsinfo.infinileap.binding.RequestParameters;
 import de.hhu.bsinfo.infinileap.binding.Tag;
 import de.hhu.bsinfo.infinileap.binding.Worker;
@@ -13,15 +11,17 @@ import de.hhu.bsinfo.infinileap.primitive.NativeLong;
 import de.hhu.bsinfo.infinileap.util.Requests;
 import jdk.incubator.foreign.MemorySegment;
 import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.SegmentAllocator;
 import jdk.incubator.foreign.ValueLayout;
 import lombok.extern.slf4j.Slf4j;
 import model.PlasmaEntry;
 import org.apache.commons.lang3.SerializationException;
 
 import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static de.hhu.bsinfo.infinileap.util.Requests.State.COMPLETE;
@@ -39,201 +39,326 @@ public class CommunicationUtils {
     private final static RequestParameters sendStreamRequestParams = new RequestParameters()
             .setDataType(DataType.CONTIGUOUS_32_BIT);
 
-    private final static NativeLong nativeLengthLong = new NativeLong();
+    private final static RequestParameters sendLongStreamRequestParams = new RequestParameters()
+            .setDataType(DataType.CONTIGUOUS_64_BIT);
 
-    private static Long prepareToSendData(final int tagID, final byte[] data, final Endpoint endpoint, final ResourceScope scope) {
+    private static final int STATUS_STRING_SIZE = 6;
+    private static final int BINARY_CODE_SIZE = Short.BYTES;
+
+    /**
+     * The flag of a request frame that marks an inline value. For PUT and RPL the entry follows the key inside of the
+     * frame, for GET the value length field holds the largest entry the client accepts inside of the response frame.
+     */
+    public static final short FRAME_FLAG_INLINE = 0x1;
+
+    private static Long prepareToSendData(final long tagID, final byte[] data, final Endpoint endpoint, final SegmentAllocator allocator) {
         log.info("[{}] Prepare to send data", tagID);
         final int dataSize = data.length;
 
         final MemorySegment source = MemorySegment.ofArray(data);
-        final MemorySegment buffer = MemorySegment.allocateNative(dataSize, scope);
+        final MemorySegment buffer = allocator.allocate(dataSize);
         buffer.copyFrom(source);
 
         return endpoint.sendTagged(buffer, Tag.of(tagID));
     }
 
-    public static Long prepareToSendStatusString(final int tagID, final String string, final Endpoint endpoint, final ResourceScope scope) {
-        return prepareToSendData(tagID, ByteBuffer.wrap(new byte[6]).putChar(string.charAt(0)).putChar(string.charAt(1)).putChar(string.charAt(2)).array(), endpoint, scope);
+    /**
+     * Returns the size of a status code or operation code on the wire.
+     */
+    public static int codeSize(final boolean binaryCodes) {
+        return binaryCodes ? BINARY_CODE_SIZE : STATUS_STRING_SIZE;
+    }
+
+    private static void putOperationCode(final ByteBuffer buffer, final OperationCode operation, final boolean binaryCodes) {
+        if (binaryCodes) {
+            buffer.putShort(operation.code());
+        } else {
+            final String name = operation.name();
+            buffer.putChar(name.charAt(0)).putChar(name.charAt(1)).putChar(name.charAt(2));
+        }
+    }
+
+    private static void putStatusCode(final ByteBuffer buffer, final int statusCode, final boolean binaryCodes) {
+        if (binaryCodes) {
+            buffer.putShort((short) statusCode);
+        } else {
+            buffer.putChar((char) ('0' + statusCode / 100))
+                    .putChar((char) ('0' + statusCode / 10 % 10))
+                    .putChar((char) ('0' + statusCode % 10));
+        }
+    }
+
+    public static long prepareToSendOperationCode(final long tagID, final OperationCode operation, final boolean binaryCodes, final Endpoint endpoint, final SegmentAllocator allocator) {
+        log.info("[{}] send operation code: {}", tagID, operation);
+        final MemorySegment buffer = allocator.allocate(codeSize(binaryCodes));
+        putOperationCode(buffer.asByteBuffer(), operation, binaryCodes);
+        return endpoint.sendTagged(buffer, Tag.of(tagID));
+    }
+
+    public static long prepareToSendStatusCode(final long tagID, final int statusCode, final boolean binaryCodes, final Endpoint endpoint, final SegmentAllocator allocator) {
+        log.info("[{}] send status code: {}", tagID, statusCode);
+        final MemorySegment buffer = allocator.allocate(codeSize(binaryCodes));
+        putStatusCode(buffer.asByteBuffer(), statusCode, binaryCodes);
+        return endpoint.sendTagged(buffer, Tag.of(tagID));
+    }
+
+    /**
+     * Returns the size of the header of a request frame: the operation code, flags, key length and value length.
+     */
+    public static int requestFrameHeaderSize(final boolean binaryCodes) {
+        return codeSize(binaryCodes) + Short.BYTES + 2 * Integer.BYTES;
     }
 
-    public static Long prepareToSendInteger(final int tagID, final int integer, final Endpoint endpoint, final ResourceScope scope) {
+    /**
+     * Returns the size of the header of a response frame: the status code and the length of the payload.
+     */
+    public static int responseFrameHeaderSize(final boolean binaryCodes) {
+        return codeSize(binaryCodes) + Integer.BYTES;
+    }
+
+    public static Long prepareToSendInteger(final long tagID, final int integer, final Endpoint endpoint, final SegmentAllocator allocator) {
         log.info("[{}] send number {}", tagID, integer);
-        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES).putInt(integer);
-        log.info(Arrays.toString(byteBuffer.array()));
-        return prepareToSendData(tagID, byteBuffer.array(), endpoint, scope);
+        final MemorySegment buffer = allocator.allocate(Integer.BYTES);
+        buffer.asByteBuffer().putInt(integer);
+        return endpoint.sendTagged(buffer, Tag.of(tagID));
     }
 
-    public static long[] prepareToSendKey(final int tagID, final String key, final Endpoint endpoint, final ResourceScope scope) {
+    public static long[] prepareToSendKey(final long tagID, final String key, final Endpoint endpoint, final SegmentAllocator allocator) {
+        return prepareToSendKey(tagID, key.getBytes(StandardCharsets.UTF_8), endpoint, allocator);
+    }
+
+    public static long[] prepareToSendKey(final long tagID, final byte[] keyBytes, final Endpoint endpoint, final SegmentAllocator allocator) {
         final long[] requests = new long[2];
-        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
-        requests[0] = prepareToSendInteger(tagID, keyBytes.length, endpoint, scope);
-        requests[1] = prepareToSendData(tagID, keyBytes, endpoint, scope);
+        requests[0] = prepareToSendInteger(tagID, keyBytes.length, endpoint, allocator);
+        requests[1] = prepareToSendData(tagID, keyBytes, endpoint, allocator);
         return requests;
     }
 
-    private static void awaitRequest(final long request, final Worker worker, final int timeoutMs) throws TimeoutException {
-        final long timeout = 2_000L * timeoutMs;
-        int counter = 0;
-        Requests.State requestState = state(request);
-        while ((requestState != COMPLETE) && (requestState != ERROR) && (counter < timeout)) {
-            worker.progress();
-            counter++;
-            requestState = state(request);
+    /**
+     * Writes the header and the key of a request into one native buffer and sends it as a single tagged message.
+     */
+    public static long prepareToSendRequestFrame(final long tagID, final OperationCode operation, final boolean binaryCodes, final short flags, final byte[] keyBytes, final int valueLength, final Endpoint endpoint, final SegmentAllocator allocator) {
+        return prepareToSendRequestFrame(tagID, operation, binaryCodes, flags, keyBytes, valueLength, null, endpoint, allocator);
+    }
+
+    /**
+     * Like {@link #prepareToSendRequestFrame(long, OperationCode, boolean, short, byte[], int, Endpoint, SegmentAllocator)},
+     * but appends the given entry to the key, see {@link #FRAME_FLAG_INLINE}.
+     *
+     * @param inlineEntry The entry sent with the request, or null if there is none.
+     */
+    public static long prepareToSendRequestFrame(final long tagID, final OperationCode operation, final boolean binaryCodes, final short flags, final byte[] keyBytes, final int valueLength, final MemorySegment inlineEntry, final Endpoint endpoint, final SegmentAllocator allocator) {
+        log.info("[{}] Prepare to send {} frame", tagID, operation);
+        final long inlineLength = inlineEntry == null ? 0 : inlineEntry.byteSize();
+        final MemorySegment frame = allocator.allocate(requestFrameHeaderSize(binaryCodes) + keyBytes.length + inlineLength);
+        final ByteBuffer buffer = frame.asByteBuffer();
+        putOperationCode(buffer, operation, binaryCodes);
+        buffer.putShort(flags)
+                .putInt(keyBytes.length)
+                .putInt(valueLength)
+                .put(keyBytes);
+        if (inlineEntry != null) {
+            frame.asSlice(buffer.position()).copyFrom(inlineEntry);
         }
-        if (requestState != COMPLETE) {
-            worker.cancelRequest(request);
-            throw new TimeoutException("A timeout occurred while awaiting a request");
-        } else {
-            Requests.release(request);
+        return endpoint.sendTagged(frame, Tag.of(tagID));
+    }
+
+    /**
+     * Returns the payload of a received response frame, or an empty segment if the response carried none.
+     *
+     * @throws SerializationException If the payload size in the header does not fit into the frame.
+     */
+    public static MemorySegment getResponseFramePayload(final MemorySegment frame, final boolean binaryCodes) throws SerializationException {
+        final int payloadSize = frame.asByteBuffer().getInt(codeSize(binaryCodes));
+        final long capacity = frame.byteSize() - responseFrameHeaderSize(binaryCodes);
+        if (payloadSize < 0 || payloadSize > capacity) {
+            throw new SerializationException("Invalid payload size " + payloadSize + " in a response frame of " + capacity + " bytes");
         }
+        return frame.asSlice(responseFrameHeaderSize(binaryCodes), payloadSize);
     }
 
-    public static void awaitRequests(final long[] requests, final Worker worker, final int timeoutMs) throws TimeoutException {
-        boolean timeoutHappened = false;
-        for (int i = 0; i < requests.length; i++) {
-            if (timeoutHappened) {
-                worker.cancelRequest(requests[i]);
-                continue;
+    /**
+     * Waits until all requests completed and releases every request as soon as it is done. The requests share one
+     * deadline and the worker is progressed once per round, no matter how many of them are still outstanding.
+     *
+     * @throws TimeoutException If a request failed or not all requests completed in time. The outstanding requests
+     *                          are cancelled.
+     */
+    public static void awaitRequests(final long[] requests, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs) throws TimeoutException {
+        awaitRequestsUntil(requests, worker, waitStrategy, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * Like {@link #awaitRequests(long[], Worker, WaitStrategy, int)}, but with a deadline in {@link System#nanoTime()} so that
+     * several batches can share a single timeout budget.
+     */
+    public static void awaitRequestsUntil(final long[] requests, final Worker worker, final WaitStrategy waitStrategy, final long deadline) throws TimeoutException {
+        final long[] pending = requests.clone();
+        int outstanding = pending.length;
+        int idleRounds = 0;
+        while (true) {
+            int i = 0;
+            while (i < outstanding) {
+                final Requests.State requestState = state(pending[i]);
+                if (requestState == COMPLETE) {
+                    Requests.release(pending[i]);
+                    pending[i] = pending[--outstanding];
+                } else if (requestState == ERROR) {
+                    cancelRequests(pending, outstanding, worker);
+                    log.error("A request failed while sending data");
+                    throw new TimeoutException("A request failed while sending data");
+                } else {
+                    i++;
+                }
             }
-            try {
-                awaitRequest(requests[i], worker, timeoutMs);
-            } catch (final TimeoutException e) {
-                timeoutHappened = true;
-                worker.cancelRequest(requests[i]);
+            if (outstanding == 0) {
+                return;
+            }
+            // Checked on every round, a worker that keeps progressing other traffic must not extend the deadline
+            if (System.nanoTime() - deadline >= 0) {
+                waitStrategy.recordTimeout();
+                cancelRequests(pending, outstanding, worker);
+                log.error("A timeout occurred while sending data");
+                throw new TimeoutException("A timeout occurred while sending data");
+            }
+            if (worker.progress()) {
+                idleRounds = 0;
+            } else {
+                waitStrategy.idle(worker, idleRounds++, deadline);
             }
-        }
-        if (timeoutHappened) {
-            log.error("A timeout occurred while sending data");
-            throw new TimeoutException("A timeout occurred while sending data");
         }
     }
 
-    public static void sendStatusCode(final int tagID, final String statusCode, final Endpoint endpoint, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
-        log.info("[{}] send status code: {}", tagID, statusCode);
-        final long request = prepareToSendStatusString(tagID, statusCode, endpoint, scope);
-        awaitRequests(new long[]{request}, worker, timeoutMs);
+    private static void cancelRequests(final long[] requests, final int count, final Worker worker) {
+        for (int i = 0; i < count; i++) {
+            worker.cancelRequest(requests[i]);
+        }
     }
 
-    private static MemorySegment memorySegmentOfBytes(final byte[] entryBytes, final ResourceScope scope) {
-        final MemorySegment sourceBuffer = MemorySegment.allocateNative(entryBytes.length, scope);
-        sourceBuffer.asByteBuffer().put(entryBytes);
-        return sourceBuffer;
+    public static void sendOperationCode(final long tagID, final OperationCode operation, final boolean binaryCodes, final Endpoint endpoint, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
+        final long request = prepareToSendOperationCode(tagID, operation, binaryCodes, endpoint, SegmentAllocator.nativeAllocator(scope));
+        awaitRequests(new long[]{request}, worker, waitStrategy, timeoutMs);
     }
 
-    public static void sendEntryPerRDMA(final int tagID, final byte[] entryBytes, final Worker worker, final Endpoint endpoint, final int timeoutMs, final ResourceScope scope) throws TimeoutException, ControlException {
-        log.info("[{}] Send Entry per RDMA", tagID);
-        final MemoryDescriptor descriptor = receiveMemoryDescriptor(tagID, worker, timeoutMs, scope);
-        final MemorySegment sourceBuffer = memorySegmentOfBytes(entryBytes, scope);
-        try (final RemoteKey remoteKey = endpoint.unpack(descriptor)) {
-            final long request = endpoint.put(sourceBuffer, descriptor.remoteAddress(), remoteKey);
-            awaitRequests(new long[]{request}, worker, timeoutMs);
-        }
+    public static long prepareToReceiveData(final long tagID, final MemorySegment buffer, final Worker worker) {
+        return worker.receiveTagged(buffer, Tag.of(tagID));
     }
 
-    private static ByteBuffer receiveData(final int tagID, final int size, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
+    private static ByteBuffer receiveData(final long tagID, final int size, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
         final MemorySegment buffer = MemorySegment.allocateNative(size, scope);
-        final long request = worker.receiveTagged(buffer, Tag.of(tagID));
-        awaitRequests(new long[]{request}, worker, timeoutMs);
+        final long request = prepareToReceiveData(tagID, buffer, worker);
+        awaitRequests(new long[]{request}, worker, waitStrategy, timeoutMs);
         return buffer.asByteBuffer();
     }
 
-    private static int receiveInteger(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
+    private static int receiveInteger(final long tagID, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
         final int number;
-        final ByteBuffer integerByteBuffer = receiveData(tagID, Integer.BYTES, worker, timeoutMs, scope);
+        final ByteBuffer integerByteBuffer = receiveData(tagID, Integer.BYTES, worker, waitStrategy, timeoutMs, scope);
         number = integerByteBuffer.getInt();
         log.info("[{}] Received \"{}\"", tagID, number);
         return number;
     }
 
-    public static int receiveCount(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
-        return receiveInteger(tagID, worker, timeoutMs, scope);
+    public static int receiveCount(final long tagID, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
+        return receiveInteger(tagID, worker, waitStrategy, timeoutMs, scope);
     }
 
-    public static InetSocketAddress receiveAddress(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException, SerializationException {
+    public static InetSocketAddress receiveAddress(final long tagID, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException, SerializationException {
+        return receiveAddress(tagID, false, worker, waitStrategy, timeoutMs, scope);
+    }
+
+    /**
+     * Receives a server address, either Java serialized or encoded with {@link AddressEncoding}.
+     */
+    public static InetSocketAddress receiveAddress(final long tagID, final boolean binaryAddress, final Worker worker, final WaitStrategy waitStrategy, final int timeoutMs, final ResourceScope scope) throws TimeoutException, SerializationException {
         final InetSocketAddress address;
-        final int addressSize = receiveInteger(tagID, worker, timeoutMs, scope);
+        final int addressSize = receiveInteger(tagID, worker, waitStrategy, timeoutMs, scope);
         final MemorySegment buffer = MemorySegment.allocateNative(addressSize, scope);
         final long request = worker.receiveTagged(buffer, Tag.of(tagID), new RequestParameters(scope));
-        awaitRequests(new long[]{request}, worker, timeoutMs);
-        address = deserialize(buffer.toArray(ValueLayout.JAVA_BYTE));
+        awaitRequests(new long[]{request}, worker, waitStrategy, timeoutMs);
+        if (binaryAddress) {
+            try {
+                address = AddressEncoding.decode(buffer.asByteBuffer());
+            } catch (final IllegalArgumentException | BufferUnderflowException e) {
+                throw new SerializationException(e.getMessage(), e);
+            }
+        } else {
+            address = deserialize(buffer.toArray(ValueLayout.JAVA_BYTE));
+        }
         return address;
     }
 
-    public static byte[] receiveHash(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
-        final byte[] hash;
-        final int hashSize = receiveInteger(tagID, worker, timeoutMs, scope);
-        // Get key as bytes
-        hash = new byte[hashSize];
-        final ByteBuffer hashBuffer = receiveData(tagID, hashSize, worker, timeoutMs, scope);
-        for (int i = 0; i < hashSize; i++) {
-            hash[i] = hashBuffer.get();
+    /**
+     * Decodes a status code without building a string. Status strings that are not three digits yield -1.
+     */
+    public static int decodeStatusCode(final ByteBuffer statusCodeByteBuffer, final boolean binaryCodes) {
+        if (binaryCodes) {
+            return Short.toUnsignedInt(statusCodeByteBuffer.getShort(0));
+        }
+        int statusCode = 0;
+        for (int i = 0; i < 3; i++) {
+            final int digit = statusCodeByteBuffer.getChar(i * Character.BYTES) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            statusCode = statusCode * 10 + digit;
         }
-        return hash;
-    }
-
-    public static String receiveStatusCode(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException, SerializationException {
-        final String statusCode;
-        final ByteBuffer statusCodeByteBuffer = receiveData(tagID, 6, worker, timeoutMs, scope);
-        statusCode = String.valueOf(statusCodeByteBuffer.getChar()) + statusCodeByteBuffer.getChar() + statusCodeByteBuffer.getChar();
-        log.info("[{}] Received status code: \"{}\"", tagID, statusCode);
         return statusCode;
     }
 
-    private static MemoryDescriptor receiveMemoryDescriptor(final int tagID, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException {
-        final MemoryDescriptor descriptor = new MemoryDescriptor(scope);
-        final long request = worker.receiveTagged(descriptor, Tag.of(tagID), new RequestParameters(scope));
-        awaitRequests(new long[]{request}, worker, timeoutMs);
-        return descriptor;
+    public static long prepareToReceiveMemoryDescriptor(final long tagID, final MemoryDescriptor descriptor, final Worker worker) {
+        return worker.receiveTagged(descriptor, Tag.of(tagID));
     }
 
-    private static PlasmaEntry getPlasmaEntryFromBuffer(final ByteBuffer objectBuffer) throws SerializationException {
+    public static PlasmaEntry getPlasmaEntryFromBuffer(final ByteBuffer objectBuffer) throws SerializationException {
         final byte[] data = new byte[objectBuffer.remaining()];
         objectBuffer.get(data);
         return deserialize(data);
     }
 
-    private static MemorySegment prepareBufferAndGetBytes(final int tagID, final Endpoint endpoint, final Worker worker, final int timeoutMs, final ResourceScope scope) throws TimeoutException, ControlException {
-        final MemoryDescriptor descriptor = receiveMemoryDescriptor(tagID, worker, timeoutMs, scope);
-
-        final MemorySegment targetBuffer = MemorySegment.allocateNative(descriptor.remoteSize(), scope);
-        try (final RemoteKey remoteKey = endpoint.unpack(descriptor)) {
-            final long request = endpoint.get(targetBuffer, descriptor.remoteAddress(), remoteKey, new RequestParameters(scope));
-            awaitRequests(new long[]{request}, worker, timeoutMs);
-        }
-        return targetBuffer;
+    public static long prepareToStreamTagID(final int tagID, final Endpoint endpoint, final SegmentAllocator allocator) {
+        // Allocate a buffer and write numbers into it
+        final NativeInteger integerToSend = NativeInteger.map(allocator.allocate(Integer.BYTES, Integer.BYTES), 0L);
+        integerToSend.set(tagID);
+        // Send the buffer to the client
+        return endpoint.sendStream(integerToSend, sendStreamRequestParams);
     }
 
-    @SuppressWarnings("PMD.DataflowAnomalyAnalysis")
-    public static byte[] receiveValuePerRDMA(final int tagID, final Endpoint endpoint, final Worker worker, final int timeoutMs, final ResourceScope scope) throws ControlException, TimeoutException, SerializationException {
-        log.info("Receiving Remote Key");
-        final MemorySegment targetBuffer = prepareBufferAndGetBytes(tagID, endpoint, worker, timeoutMs, scope);
-
-        final ByteBuffer objectBuffer = targetBuffer.asByteBuffer();
-        final PlasmaEntry entry = getPlasmaEntryFromBuffer(objectBuffer);
+    public static void streamTagID(final int tagID, final Endpoint endpoint, final Worker worker, final WaitStrategy waitStrategy, final int timeout, final ResourceScope scope) throws TimeoutException {
+        final long[] request = new long[]{prepareToStreamTagID(tagID, endpoint, SegmentAllocator.nativeAllocator(scope))};
+        awaitRequests(request, worker, waitStrategy, timeout);
+    }
 
-        return entry.value;
+    /**
+     * Streams a client allocated tag ID to the server. Streaming zero requests a new tag ID prefix instead.
+     */
+    public static long prepareToAnnounceTagID(final long tagID, final Endpoint endpoint, final SegmentAllocator allocator) {
+        final NativeLong longToSend = NativeLong.map(allocator.allocate(Long.BYTES, Long.BYTES), 0L);
+        longToSend.set(tagID);
+        return endpoint.sendStream(longToSend, sendLongStreamRequestParams);
     }
 
-    public static byte[] receiveObjectPerRDMA(final int tagID, final Endpoint endpoint, final Worker worker, final int timeoutMs, final ResourceScope scope) throws ControlException, TimeoutException, SerializationException {
-        log.info("Receiving Remote Key");
-        final MemorySegment targetBuffer = prepareBufferAndGetBytes(tagID, endpoint, worker, timeoutMs, scope);
-        return targetBuffer.toArray(ValueLayout.JAVA_BYTE);
+    public static void announceTagID(final long tagID, final Endpoint endpoint, final Worker worker, final WaitStrategy waitStrategy, final int timeout, final ResourceScope scope) throws TimeoutException {
+        final long[] request = new long[]{prepareToAnnounceTagID(tagID, endpoint, SegmentAllocator.nativeAllocator(scope))};
+        awaitRequests(request, worker, waitStrategy, timeout);
     }
 
-    public static void streamTagID(final int tagID, final Endpoint endpoint, final Worker worker, final int timeout, final ResourceScope scope) throws TimeoutException {
-        // Allocate a buffer and write numbers into it
-        final NativeInteger integerToSend = new NativeInteger(tagID, scope);
-        integerToSend.set(tagID);
-        // Send the buffer to the client
-        final long[] request = new long[]{endpoint.sendStream(integerToSend, sendStreamRequestParams)};
-        awaitRequests(request, worker, timeout);
+    public static long prepareToReceiveTagIDAsStream(final MemorySegment buffer, final Endpoint endpoint, final NativeLong streamLength) {
+        return endpoint.receiveStream(buffer, 1, streamLength, receiveStreamRequestParams);
     }
 
-    public static int receiveTagIDAsStream(final Endpoint endpoint, final Worker worker, final int timeOut, final ResourceScope scope) throws TimeoutException {
+    /**
+     * Receives the tag ID the server assigned to the next operation.
+     */
+    public static int receiveTagIDAsStream(final Endpoint endpoint, final Worker worker, final WaitStrategy waitStrategy, final int timeOut, final ResourceScope scope) throws TimeoutException {
         final MemorySegment buffer = MemorySegment.allocateNative(Integer.BYTES, scope);
-        final long[] request = new long[]{endpoint.receiveStream(buffer, 1, nativeLengthLong, receiveStreamRequestParams)};
-        awaitRequests(request, worker, timeOut);
+        final NativeLong streamLength = NativeLong.map(MemorySegment.allocateNative(Long.BYTES, Long.BYTES, scope), 0L);
+        final long[] request = new long[]{prepareToReceiveTagIDAsStream(buffer, endpoint, streamLength)};
+        awaitRequests(request, worker, waitStrategy, timeOut);
+        return readTagID(buffer);
+    }
 
+    public static int readTagID(final MemorySegment buffer) {
         final var value = NativeInteger.map(buffer, 0L);
         return value.get();
     }
@@ -0,0 +1,100 @@
+package utils;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Routes keys with a consistent hash ring, so that adding or removing a server only moves the keys of about one
+ * server's share of the ring.
+ * <p>
+ * Every server is placed on the ring at a number of virtual nodes, which is multiplied by the weight of its address.
+ * The positions are derived from the server address, not from its ID, so a server keeps its share of the keys when
+ * the IDs of the other servers change. A key belongs to the first virtual node at or after its hash.
+ */
+public class ConsistentHashPartitioner implements Partitioner {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int virtualNodes;
+    private final Map<InetSocketAddress, Integer> weights;
+    private volatile Ring ring = new Ring(new long[0], new int[0]);
+
+    public ConsistentHashPartitioner() {
+        this(DEFAULT_VIRTUAL_NODES, Map.of());
+    }
+
+    /**
+     * @param virtualNodes The number of virtual nodes of a server with weight one.
+     * @param weights      The weight of each server address. Servers that are not listed have weight one.
+     */
+    public ConsistentHashPartitioner(final int virtualNodes, final Map<InetSocketAddress, Integer> weights) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("The number of virtual nodes must be positive");
+        }
+        this.virtualNodes = virtualNodes;
+        this.weights = new HashMap<>(weights);
+    }
+
+    @Override
+    public void updateServers(final Map<Integer, InetSocketAddress> servers) {
+        final TreeMap<Long, Integer> nodes = new TreeMap<>();
+        for (final Map.Entry<Integer, InetSocketAddress> server : servers.entrySet()) {
+            final String name = nodeName(server.getValue());
+            final int count = virtualNodes * weights.getOrDefault(server.getValue(), 1);
+            for (int i = 0; i < count; i++) {
+                nodes.putIfAbsent(HashUtils.getKeyHash(name + "#" + i), server.getKey());
+            }
+        }
+        final long[] positions = new long[nodes.size()];
+        final int[] serverIDs = new int[nodes.size()];
+        int index = 0;
+        for (final Map.Entry<Long, Integer> node : nodes.entrySet()) {
+            positions[index] = node.getKey();
+            serverIDs[index] = node.getValue();
+            index++;
+        }
+        this.ring = new Ring(positions, serverIDs);
+    }
+
+    private static String nodeName(final InetSocketAddress address) {
+        final String host = address.getAddress() == null ? address.getHostString() : address.getAddress().getHostAddress();
+        return host + ":" + address.getPort();
+    }
+
+    /**
+     * Falls back to the modulo placement as long as the client did not learn the addresses of the servers yet.
+     */
+    @Override
+    public int getResponsibleServerID(final String key, final int serverCount) {
+        final Ring currentRing = this.ring;
+        if (currentRing.positions.length == 0) {
+            return HashUtils.getResponsibleServerID(key, serverCount);
+        }
+        return serverAt(currentRing, HashUtils.getKeyHash(key));
+    }
+
+    @Override
+    public int getResponsibleServerID(final byte[] keyBytes, final int serverCount) {
+        final Ring currentRing = this.ring;
+        if (currentRing.positions.length == 0) {
+            return HashUtils.getResponsibleServerID(keyBytes, serverCount);
+        }
+        return serverAt(currentRing, HashUtils.getKeyHash(keyBytes));
+    }
+
+    private static int serverAt(final Ring currentRing, final long hash) {
+        int index = Arrays.binarySearch(currentRing.positions, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == currentRing.positions.length) {
+            index = 0;
+        }
+        return currentRing.serverIDs[index];
+    }
+
+    private record Ring(long[] positions, int[] serverIDs) {
+    }
+}
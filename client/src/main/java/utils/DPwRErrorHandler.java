@@ -5,10 +5,28 @@ import de.hhu.bsinfo.infinileap.binding.Status;
 import jdk.incubator.foreign.MemoryAddress;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.function.BiConsumer;
+
 @Slf4j
 public class DPwRErrorHandler implements ErrorHandler {
+    private final BiConsumer<MemoryAddress, Status> listener;
+
+    public DPwRErrorHandler() {
+        this((endpoint, status) -> {
+        });
+    }
+
+    /**
+     * @param listener Called with the address of the failed endpoint and the error. UCX reports errors while the
+     *                 worker of the endpoint is progressed.
+     */
+    public DPwRErrorHandler(final BiConsumer<MemoryAddress, Status> listener) {
+        this.listener = listener;
+    }
+
     @Override
     public void onError(final MemoryAddress userData, final MemoryAddress endpoint, final Status status) {
         log.error(status.name());
+        listener.accept(endpoint, status);
     }
-}
\ No newline at end of file
+}
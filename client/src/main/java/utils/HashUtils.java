@@ -2,54 +2,173 @@ package utils;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
+/**
+ * Routes keys by the MD5 hash of their UTF-8 encoding, interpreted as an unsigned 128 bit number.
+ * <p>
+ * Routing runs once per operation, so every thread keeps its own digest and buffers and the hash is reduced with
+ * plain long arithmetic instead of {@link java.math.BigInteger}.
+ */
 @Slf4j
 public class HashUtils {
     private static final boolean TEST_MODE = true;
+    private static final String COLLISION_MARKER = "hash_collision_test";
+    private static final byte[] COLLISION_MARKER_BYTES = COLLISION_MARKER.getBytes(StandardCharsets.UTF_8);
+    private static final ThreadLocal<KeyHasher> keyHasher = ThreadLocal.withInitial(KeyHasher::new);
 
-    private static byte[] getMD5Hash(final String text) {
-        final MessageDigest messageDigest;
-        try {
-            messageDigest = MessageDigest.getInstance("MD5");
-        } catch (final NoSuchAlgorithmException e) {
-            log.error("The MD5 hash algorithm was not found.", e);
-            return new byte[0];
-        }
-        byte[] id = messageDigest.digest(text.getBytes(StandardCharsets.UTF_8));
-        if (TEST_MODE) {
-            if (text.contains("hash_collision_test")) {
-                id = new byte[16];
-            }
-        }
-        // If all bits are zero there are problems with the next entry id's of the plasma entry's
-        if (Arrays.equals(id, new byte[16])) {
-            // Set the first bit to 1
-            id[0] |= 1 << (0);
-        }
-        return id;
+    /**
+     * Returns the first 64 bits of the MD5 hash of the key as a signed number.
+     */
+    public static long getKeyHash(final String key) {
+        final KeyHasher hasher = keyHasher.get();
+        hasher.hash(key);
+        return hasher.high;
     }
 
-    private static String bytesToHex(final byte[] raw) {
-        final StringBuilder buffer = new StringBuilder();
-        for (final byte b : raw) {
-            buffer.append(Character.forDigit((b >> 4) & 0xF, 16));
-            buffer.append(Character.forDigit((b & 0xF), 16));
-        }
-        return buffer.toString();
+    /**
+     * Like {@link #getKeyHash(String)}, but for a key that is already UTF-8 encoded.
+     */
+    public static long getKeyHash(final byte[] keyBytes) {
+        final KeyHasher hasher = keyHasher.get();
+        hasher.hash(keyBytes);
+        return hasher.high;
     }
 
     public static int getResponsibleServerID(final String key, final int serverCount) {
         if (serverCount <= 0) {
             return -1;
         }
-        final byte[] id = getMD5Hash(key);
-        final String idAsHexValues = bytesToHex(id);
-        final BigInteger idAsNumber = new BigInteger(idAsHexValues, 16);
-        return idAsNumber.remainder(BigInteger.valueOf(serverCount)).intValue();
+        final KeyHasher hasher = keyHasher.get();
+        hasher.hash(key);
+        return reduce(hasher, serverCount);
+    }
+
+    /**
+     * Like {@link #getResponsibleServerID(String, int)}, but for a key that is already UTF-8 encoded.
+     */
+    public static int getResponsibleServerID(final byte[] keyBytes, final int serverCount) {
+        if (serverCount <= 0) {
+            return -1;
+        }
+        final KeyHasher hasher = keyHasher.get();
+        hasher.hash(keyBytes);
+        return reduce(hasher, serverCount);
+    }
+
+    private static int reduce(final KeyHasher hasher, final int serverCount) {
+        // (high * 2^64 + low) mod serverCount, reduced 32 bits at a time so that nothing overflows
+        long remainder = Long.remainderUnsigned(hasher.high, serverCount);
+        remainder = Long.remainderUnsigned((remainder << 32) | (hasher.low >>> 32), serverCount);
+        remainder = Long.remainderUnsigned((remainder << 32) | (hasher.low & 0xFFFFFFFFL), serverCount);
+        return (int) remainder;
+    }
+
+    /**
+     * The MD5 digest and buffers of one thread.
+     */
+    private static final class KeyHasher {
+        private final MessageDigest messageDigest;
+        private final byte[] hash = new byte[16];
+        private byte[] keyBuffer = new byte[64];
+        private long high;
+        private long low;
+
+        private KeyHasher() {
+            MessageDigest digest = null;
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (final NoSuchAlgorithmException e) {
+                log.error("The MD5 hash algorithm was not found.", e);
+            }
+            this.messageDigest = digest;
+        }
+
+        private void hash(final String text) {
+            if (TEST_MODE && text.contains(COLLISION_MARKER)) {
+                digest(null, 0);
+            } else {
+                final int length = encode(text);
+                digest(keyBuffer, length);
+            }
+        }
+
+        private void hash(final byte[] bytes) {
+            if (TEST_MODE && contains(bytes, COLLISION_MARKER_BYTES)) {
+                digest(null, 0);
+            } else {
+                digest(bytes, bytes.length);
+            }
+        }
+
+        /**
+         * Hashes the first bytes of the data. Without data, the hash is the one of a failed digest.
+         */
+        private void digest(final byte[] data, final int length) {
+            high = 0;
+            low = 0;
+            if (messageDigest != null && data != null) {
+                messageDigest.update(data, 0, length);
+                try {
+                    messageDigest.digest(hash, 0, hash.length);
+                } catch (final DigestException e) {
+                    log.error("Computing the MD5 hash failed.", e);
+                    messageDigest.reset();
+                    return;
+                }
+                high = readLong(0);
+                low = readLong(Long.BYTES);
+            }
+            // If all bits are zero there are problems with the next entry id's of the plasma entry's
+            if (high == 0 && low == 0) {
+                // Set the first bit to 1
+                high = 1L << 56;
+            }
+        }
+
+        /**
+         * Writes the UTF-8 encoding of the text into the key buffer and returns its length. ASCII text is encoded
+         * without allocating, anything else goes through {@link String#getBytes}.
+         */
+        private int encode(final String text) {
+            final int length = text.length();
+            if (keyBuffer.length < length) {
+                keyBuffer = new byte[Math.max(length, 2 * keyBuffer.length)];
+            }
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                if (c >= 0x80) {
+                    final byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                    if (keyBuffer.length < encoded.length) {
+                        keyBuffer = new byte[encoded.length];
+                    }
+                    System.arraycopy(encoded, 0, keyBuffer, 0, encoded.length);
+                    return encoded.length;
+                }
+                keyBuffer[i] = (byte) c;
+            }
+            return length;
+        }
+
+        private static boolean contains(final byte[] bytes, final byte[] part) {
+            for (int i = 0; i <= bytes.length - part.length; i++) {
+                if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long readLong(final int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + Long.BYTES; i++) {
+                value = (value << 8) | (hash[i] & 0xFF);
+            }
+            return value;
+        }
     }
 }
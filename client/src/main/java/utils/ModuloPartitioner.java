@@ -0,0 +1,17 @@
+package utils;
+
+/**
+ * Routes a key to the MD5 hash of the key modulo the number of servers. This is the placement the servers expect by
+ * default, but adding or removing a server moves almost every key.
+ */
+public class ModuloPartitioner implements Partitioner {
+    @Override
+    public int getResponsibleServerID(final String key, final int serverCount) {
+        return HashUtils.getResponsibleServerID(key, serverCount);
+    }
+
+    @Override
+    public int getResponsibleServerID(final byte[] keyBytes, final int serverCount) {
+        return HashUtils.getResponsibleServerID(keyBytes, serverCount);
+    }
+}
@@ -0,0 +1,29 @@
+package utils;
+
+/**
+ * The operations a client can request from a server.
+ * <p>
+ * By default an operation is sent as its name in three UTF-16 characters. With
+ * {@link client.ProtocolFeature#BINARY_CODES} the 16 bit code is sent instead.
+ */
+public enum OperationCode {
+    PUT(1),
+    GET(2),
+    DEL(3),
+    CNT(4),
+    HSH(5),
+    BYE(6),
+    INF(7),
+    LST(8),
+    RPL(9);
+
+    private final short code;
+
+    OperationCode(final int code) {
+        this.code = (short) code;
+    }
+
+    public short code() {
+        return code;
+    }
+}
@@ -0,0 +1,33 @@
+package utils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Decides which server of the cluster is responsible for a key.
+ * <p>
+ * All clients of a cluster must use the same partitioner, otherwise they will not find each other's objects.
+ */
+public interface Partitioner {
+    /**
+     * Returns the ID of the server responsible for the key, or -1 if there are no servers.
+     */
+    int getResponsibleServerID(String key, int serverCount);
+
+    /**
+     * Like {@link #getResponsibleServerID(String, int)}, but for the UTF-8 encoding of the key. Partitioners that
+     * hash the encoding should override this, so that pre-encoded keys are not encoded again.
+     */
+    default int getResponsibleServerID(final byte[] keyBytes, final int serverCount) {
+        return getResponsibleServerID(new String(keyBytes, StandardCharsets.UTF_8), serverCount);
+    }
+
+    /**
+     * Called whenever the client learned the current servers of the cluster, before any key is routed to them.
+     *
+     * @param servers The address of every server by its ID.
+     */
+    default void updateServers(final Map<Integer, InetSocketAddress> servers) {
+    }
+}
@@ -0,0 +1,84 @@
+package utils;
+
+import de.hhu.bsinfo.infinileap.binding.MemoryDescriptor;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.SegmentAllocator;
+
+/**
+ * A long-lived block of native memory that control messages are carved from.
+ * <p>
+ * Allocations only move an offset forward and {@link #reset()} makes the whole block available again, so the
+ * messages of an operation cost neither a native allocation nor a resource scope. The arena also keeps one memory
+ * descriptor for the whole of its life, which every user of the arena receives into. Only requests that do not fit
+ * into the block anymore fall back to a scope that is created on demand and closed on reset. An arena is confined to
+ * the thread that created it.
+ */
+public final class ScratchArena implements SegmentAllocator, AutoCloseable {
+    /**
+     * Large enough for the control messages and the key of any regular operation.
+     */
+    public static final long DEFAULT_SIZE = 4096;
+
+    private final ResourceScope blockScope = ResourceScope.newConfinedScope();
+    private final MemorySegment block;
+    private MemoryDescriptor descriptor;
+    private ResourceScope overflowScope;
+    private long offset;
+
+    public ScratchArena() {
+        this(DEFAULT_SIZE);
+    }
+
+    public ScratchArena(final long size) {
+        this.block = MemorySegment.allocateNative(size, Long.BYTES, blockScope);
+    }
+
+    @Override
+    public MemorySegment allocate(final long bytesSize, final long bytesAlignment) {
+        final long start = (offset + bytesAlignment - 1) / bytesAlignment * bytesAlignment;
+        if (start + bytesSize > block.byteSize()) {
+            return MemorySegment.allocateNative(bytesSize, bytesAlignment, overflowScope());
+        }
+        offset = start + bytesSize;
+        return block.asSlice(start, bytesSize);
+    }
+
+    /**
+     * Returns the memory descriptor of this arena. It is not affected by {@link #reset()}, so its content is only
+     * valid until the next user of the arena receives into it.
+     */
+    public MemoryDescriptor descriptor() {
+        if (descriptor == null) {
+            descriptor = new MemoryDescriptor(blockScope);
+        }
+        return descriptor;
+    }
+
+    /**
+     * Returns a scope for native objects that cannot be placed in the arena. The scope is closed on the next reset.
+     */
+    public ResourceScope overflowScope() {
+        if (overflowScope == null) {
+            overflowScope = ResourceScope.newConfinedScope();
+        }
+        return overflowScope;
+    }
+
+    /**
+     * Makes the whole arena available again. No segment handed out before may be used afterwards.
+     */
+    public void reset() {
+        offset = 0;
+        if (overflowScope != null) {
+            overflowScope.close();
+            overflowScope = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        reset();
+        blockScope.close();
+    }
+}
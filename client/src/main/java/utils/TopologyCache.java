@@ -0,0 +1,106 @@
+package utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the servers of a cluster in a file so that a restarted client can skip asking the seed server for them.
+ * <p>
+ * A cached topology is only used if it was fetched from the same seed server and is younger than the maximum age.
+ * The file holds a magic number, the time it was written, the seed address and the servers by ID, all encoded with
+ * {@link AddressEncoding}.
+ */
+@Slf4j
+public final class TopologyCache {
+    private static final int MAGIC = 0x44505754;
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    public TopologyCache(final Path file, final Duration maxAge) {
+        this(file, maxAge, Clock.systemUTC());
+    }
+
+    TopologyCache(final Path file, final Duration maxAge, final Clock clock) {
+        this.file = file;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached servers of the cluster behind the given seed, or null if there is no valid cache.
+     */
+    public Map<Integer, InetSocketAddress> read(final InetSocketAddress seed) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC) {
+                log.warn("{} is not a topology cache", file);
+                return null;
+            }
+            final long writtenAt = buffer.getLong();
+            if (clock.millis() - writtenAt > maxAge.toMillis()) {
+                log.info("The cached topology in {} expired", file);
+                return null;
+            }
+            if (!AddressEncoding.decode(buffer).equals(seed)) {
+                log.info("The cached topology in {} belongs to another seed server", file);
+                return null;
+            }
+            final int serverCount = buffer.getInt();
+            final Map<Integer, InetSocketAddress> servers = new HashMap<>();
+            for (int i = 0; i < serverCount; i++) {
+                final int serverID = buffer.getInt();
+                servers.put(serverID, AddressEncoding.decode(buffer));
+            }
+            return servers;
+        } catch (final IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Reading the topology cache {} failed: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the cache with the given servers. Failures are logged, the cache is only an optimization.
+     */
+    public void write(final InetSocketAddress seed, final Map<Integer, InetSocketAddress> servers) {
+        try {
+            int size = Integer.BYTES + Long.BYTES + AddressEncoding.encodedSize(seed) + Integer.BYTES;
+            for (final InetSocketAddress address : servers.values()) {
+                size += Integer.BYTES + AddressEncoding.encodedSize(address);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(MAGIC).putLong(clock.millis());
+            AddressEncoding.encode(seed, buffer);
+            buffer.putInt(servers.size());
+            for (final Map.Entry<Integer, InetSocketAddress> server : servers.entrySet()) {
+                buffer.putInt(server.getKey());
+                AddressEncoding.encode(server.getValue(), buffer);
+            }
+            final Path directory = file.toAbsolutePath().getParent();
+            final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporary, buffer.array());
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (final IOException | IllegalArgumentException e) {
+            log.warn("Writing the topology cache {} failed: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package utils;
+
+/**
+ * A snapshot of how the threads using a {@link WaitStrategy} waited for requests.
+ *
+ * @param kind     The kind of the strategy.
+ * @param spins    How often a thread polled again right away after the worker had nothing to do.
+ * @param yields   How often a thread yielded the processor.
+ * @param awaits   How often a thread blocked until the worker had events.
+ * @param timeouts How often {@link CommunicationUtils#awaitRequests} gave up on a batch of requests.
+ */
+public record WaitStatistics(WaitStrategy.Kind kind, long spins, long yields, long awaits, long timeouts) {
+}
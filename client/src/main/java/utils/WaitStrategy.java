@@ -0,0 +1,119 @@
+package utils;
+
+import de.hhu.bsinfo.infinileap.binding.Worker;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides what a thread does while it waits for UCX requests and progressing the worker found nothing to do.
+ * <p>
+ * Every strategy first polls the worker for a number of idle rounds. Afterwards {@link Kind#BUSY_SPIN} keeps
+ * polling, {@link Kind#SPIN_YIELD} yields the processor between polls and {@link Kind#SPIN_AWAIT} blocks in
+ * {@link Worker#await()} until the worker has events again. A blocked worker is signalled when the deadline of the
+ * wait is reached, so timeouts still hold. Awaiting requires the UCX context to be created with the wakeup feature.
+ * <p>
+ * A strategy counts how its threads waited and may be shared by any number of threads.
+ */
+public final class WaitStrategy {
+    /**
+     * The number of idle rounds the spinning strategies poll before they yield or block.
+     */
+    public static final int DEFAULT_SPINS = 1_000;
+
+    /**
+     * The longest time a thread blocks in a single await. Callers without a deadline of their own use this slice.
+     */
+    public static final long MAX_AWAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ScheduledExecutorService wakeups = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "dpwr-worker-wakeup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public enum Kind {
+        BUSY_SPIN,
+        SPIN_YIELD,
+        SPIN_AWAIT
+    }
+
+    private final Kind kind;
+    private final int spins;
+    private final LongAdder spinCount = new LongAdder();
+    private final LongAdder yieldCount = new LongAdder();
+    private final LongAdder awaitCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private WaitStrategy(final Kind kind, final int spins) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("The number of spins must not be negative");
+        }
+        this.kind = kind;
+        this.spins = spins;
+    }
+
+    public static WaitStrategy busySpin() {
+        return new WaitStrategy(Kind.BUSY_SPIN, 0);
+    }
+
+    public static WaitStrategy spinThenYield(final int spins) {
+        return new WaitStrategy(Kind.SPIN_YIELD, spins);
+    }
+
+    public static WaitStrategy spinThenAwait(final int spins) {
+        return new WaitStrategy(Kind.SPIN_AWAIT, spins);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Whether the strategy blocks in {@link Worker#await()} and therefore needs the wakeup feature of UCX.
+     */
+    public boolean awaitsWorker() {
+        return kind == Kind.SPIN_AWAIT;
+    }
+
+    /**
+     * Waits once after progressing the worker found nothing to do.
+     *
+     * @param idleRounds The number of idle rounds that directly preceded this one.
+     * @param deadline   The {@link System#nanoTime()} at which the caller gives up waiting.
+     */
+    public void idle(final Worker worker, final int idleRounds, final long deadline) {
+        if (kind == Kind.BUSY_SPIN || idleRounds < spins) {
+            spinCount.increment();
+            Thread.onSpinWait();
+            return;
+        }
+        if (kind == Kind.SPIN_YIELD) {
+            yieldCount.increment();
+            Thread.yield();
+            return;
+        }
+        final long remaining = Math.min(deadline - System.nanoTime(), MAX_AWAIT_NANOS);
+        if (remaining <= 0) {
+            return;
+        }
+        awaitCount.increment();
+        final ScheduledFuture<?> wakeup = wakeups.schedule(worker::signal, remaining, TimeUnit.NANOSECONDS);
+        try {
+            worker.await();
+        } finally {
+            wakeup.cancel(false);
+        }
+    }
+
+    void recordTimeout() {
+        timeoutCount.increment();
+    }
+
+    public WaitStatistics statistics() {
+        return new WaitStatistics(kind, spinCount.sum(), yieldCount.sum(), awaitCount.sum(), timeoutCount.sum());
+    }
+}
@@ -3,6 +3,9 @@ package client;
 import exceptions.DuplicateKeyException;
 import exceptions.KeyNotFoundException;
 import exceptions.NetworkException;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.ValueLayout;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,17 +19,26 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.Timeout;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 import static org.apache.commons.lang3.SerializationUtils.serialize;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -210,6 +222,103 @@ public class DPwRClientTest {
             assertThrows(KeyNotFoundException.class, () -> client.hash(key, getAttempts));
         }
 
+        @Test
+        void testSuccessfulAsyncOperations() {
+            final String key = "This is a key";
+            final byte[] value = serialize("This is a value");
+            assertDoesNotThrow(() -> {
+                client.putAsync(key, value, putAttempts).get();
+                assertTrue(client.containsAsync(key, getAttempts).get());
+                assertArrayEquals(value, client.getAsync(key, getAttempts).get());
+                assertEquals(8, client.hashAsync(key, getAttempts).get().length);
+                client.delAsync(key, delAttempts).get();
+                assertFalse(client.containsAsync(key, getAttempts).get());
+            });
+        }
+
+        @Test
+        void testSuccessfulOffHeapPutAndGet() {
+            final String key = "This is a key";
+            final byte[] value = serialize("This is a value");
+            assertDoesNotThrow(() -> {
+                try (final ResourceScope scope = ResourceScope.newConfinedScope()) {
+                    final MemorySegment source = MemorySegment.allocateNative(value.length, scope);
+                    source.copyFrom(MemorySegment.ofArray(value));
+                    client.put(key, source, putAttempts);
+
+                    final MemorySegment target = MemorySegment.allocateNative(value.length, scope);
+                    assertEquals(value.length, client.getInto(key, target, getAttempts));
+                    assertArrayEquals(value, target.toArray(ValueLayout.JAVA_BYTE));
+
+                    final ByteBuffer directTarget = ByteBuffer.allocateDirect(value.length);
+                    assertEquals(value.length, client.get(key, directTarget, getAttempts));
+                    assertEquals(value.length, directTarget.position());
+                }
+                client.del(key, delAttempts);
+            });
+        }
+
+        @Test
+        void testMultiKeyOperations() {
+            final DPwRKey key1 = DPwRKey.of("This is a key1");
+            final DPwRKey key2 = DPwRKey.of("This is a key2");
+            final byte[] value = serialize("This is a value");
+            assertDoesNotThrow(() -> {
+                final Map<DPwRKey, byte[]> entries = new LinkedHashMap<>();
+                entries.put(key1, value);
+                assertEquals(KeyStatus.OK, client.multiPut(entries, putAttempts).get(0).status());
+
+                final List<KeyResult<byte[]>> results = client.multiGet(List.of(key1, key2), getAttempts);
+                assertEquals(KeyStatus.OK, results.get(0).status());
+                assertArrayEquals(value, results.get(0).value());
+                assertEquals(KeyStatus.NOT_FOUND, results.get(1).status());
+
+                assertEquals(KeyStatus.DUPLICATE_KEY, client.multiPut(entries, putAttempts).get(0).status());
+                assertTrue(client.multiContains(List.of(key1), getAttempts).get(0).value());
+                assertEquals(KeyStatus.OK, client.multiDelete(List.of(key1), delAttempts).get(0).status());
+            });
+        }
+
+        @Test
+        void testUpsert() {
+            final String key = "This is a key";
+            final byte[] value = serialize("This is a value");
+            final byte[] value1 = serialize("This is a value1");
+            assertDoesNotThrow(() -> {
+                client.upsert(key, value, putAttempts);
+                assertArrayEquals(value, client.get(key, getAttempts));
+                client.upsert(key, value1, putAttempts);
+                assertArrayEquals(value1, client.get(key, getAttempts));
+            });
+        }
+
+        @Test
+        void testGetIfChanged() {
+            final DPwRKey key = DPwRKey.of("This is a key");
+            final byte[] value = serialize("This is a value");
+            assertDoesNotThrow(() -> {
+                client.put(key, value, putAttempts);
+                final ConditionalValue changed = client.getIfChanged(key, new byte[0], getAttempts);
+                assertTrue(changed.changed());
+                assertArrayEquals(value, changed.value());
+
+                final ConditionalValue unchanged = client.getIfChanged(key, changed.hash(), getAttempts);
+                assertFalse(unchanged.changed());
+                assertNull(unchanged.value());
+
+                final List<KeyResult<ConditionalValue>> results = client.multiGetIfChanged(Map.of(key, changed.hash()), getAttempts);
+                assertFalse(results.get(0).value().changed());
+                client.del(key, delAttempts);
+            });
+        }
+
+        @Test
+        void testUnsuccessfulAsyncGet() {
+            final String key = "This is a key";
+            final ExecutionException exception = assertThrows(ExecutionException.class, () -> client.getAsync(key, getAttempts).get());
+            assertInstanceOf(KeyNotFoundException.class, exception.getCause());
+        }
+
         @Test
         void testEmptyList() {
             assertDoesNotThrow(() -> {
@@ -237,6 +346,25 @@ public class DPwRClientTest {
             });
         }
 
+        @Test
+        void testListStream() {
+            final String key = "This is a key";
+            final byte[] value = serialize("This is a value");
+            final String key1 = "This is a key1";
+            final byte[] value1 = serialize("This is a value1");
+            assertDoesNotThrow(() -> {
+                client.put(key, value, putAttempts);
+                client.put(key1, value1, putAttempts);
+                try (final Stream<byte[]> objects = client.listStream(getAttempts)) {
+                    assertEquals(2, objects.count());
+                }
+                try (final Stream<byte[]> objects = client.listStream(getAttempts)) {
+                    assertEquals(1, objects.limit(1).count());
+                }
+                assertArrayEquals(value, client.get(key, getAttempts));
+            });
+        }
+
         @Test
         void testCanPutGetAndDeleteObject() {
             final String key = "This is a key";
@@ -635,6 +763,40 @@ public class DPwRClientTest {
             assertDoesNotThrow(() -> latch.await());
         }
 
+        @Test
+        @Timeout(120)
+        void testThreeThreadsSharingOneClient() {
+            final CountDownLatch latch = new CountDownLatch(3);
+            final DPwRClient sharedClient = new DPwRClient(serverAddress, timeoutMs, verbose);
+            assertDoesNotThrow(() -> sharedClient.initialize());
+
+            for (int i = 0; i < 3; i++) {
+                final int startIndex = 6000 + i * 1000;
+                new Thread(() -> {
+                    assertDoesNotThrow(() -> testMultipleKeyValues(startIndex, sharedClient, 1000));
+                    sharedClient.closeConnection();
+                    latch.countDown();
+                }).start();
+            }
+
+            assertDoesNotThrow(() -> latch.await());
+        }
+
+        @Test
+        @Timeout(120)
+        void testManyAsyncOperationsInFlight() {
+            final DPwRClient asyncClient = new DPwRClient(serverAddress, timeoutMs, verbose);
+            assertDoesNotThrow(() -> asyncClient.initialize());
+            final List<CompletableFuture<Void>> puts = new ArrayList<>();
+            for (int i = 9000; i < 10000; i++) {
+                puts.add(asyncClient.putAsync("This is a key" + i, serialize("This is a value" + i), putAttempts));
+            }
+            assertDoesNotThrow(() -> CompletableFuture.allOf(puts.toArray(CompletableFuture[]::new)).get());
+            assertDoesNotThrow(() -> canGetMultipleTimes(1000, 9000, asyncClient));
+            assertDoesNotThrow(() -> canDeleteMultipleTimes(1000, 9000, asyncClient));
+            asyncClient.closeConnection();
+        }
+
         private void testMultipleKeyValues(final int startIndex, final DPwRClient client, final int count) throws Exception {
             canPutMultipleTimes(count, startIndex, client);
             canGetMultipleTimes(count, startIndex, client);
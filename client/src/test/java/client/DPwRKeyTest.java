@@ -0,0 +1,39 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DPwRKeyTest {
+
+    @Test
+    void namespaceIsJoinedWithADot() {
+        final DPwRKey key = new DPwRKey("usertable", "user42");
+
+        assertEquals("usertable.user42", key.key());
+        assertArrayEquals("usertable.user42".getBytes(StandardCharsets.UTF_8), key.bytes());
+        assertEquals(DPwRKey.of("usertable.user42"), key);
+    }
+
+    @Test
+    void namespacePrefixMatchesTheKeysOfTheNamespace() {
+        final String prefix = DPwRKey.namespacePrefix("usertable");
+
+        assertTrue(new DPwRKey("usertable", "user42").key().startsWith(prefix));
+        assertFalse(new DPwRKey("usertable2", "user42").key().startsWith(prefix));
+    }
+
+    @Test
+    void cachedServerIDIsOnlyValidInItsEpoch() {
+        final DPwRKey key = DPwRKey.of("key");
+
+        assertEquals(-1, key.cachedServerID(0));
+
+        key.cacheServerID(3, 7);
+
+        assertEquals(7, key.cachedServerID(3));
+        assertEquals(-1, key.cachedServerID(4));
+    }
+}
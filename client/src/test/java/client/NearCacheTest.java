@@ -0,0 +1,88 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheTest {
+
+    @Test
+    void getReturnsACopyOfTheCachedValue() {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults());
+        final DPwRKey key = DPwRKey.of("key");
+        final byte[] value = {1, 2, 3};
+
+        cache.put(key, value, cache.version(key));
+        value[0] = 9;
+        final byte[] cached = cache.get(key);
+        cached[1] = 9;
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(key));
+    }
+
+    @Test
+    void offHeapStorageKeepsTheValue() {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults().withOffHeapStorage(true));
+        final DPwRKey key = DPwRKey.of("key");
+
+        cache.put(key, new byte[]{4, 5, 6}, cache.version(key));
+
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get(key));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults().withMaxEntries(1));
+        final DPwRKey first = DPwRKey.of("first");
+        final DPwRKey second = DPwRKey.of("second");
+
+        cache.put(first, new byte[]{1}, cache.version(first));
+        cache.put(second, new byte[]{2}, cache.version(second));
+
+        assertNull(cache.get(first));
+        assertNotNull(cache.get(second));
+        assertEquals(1, cache.statistics().evictions());
+    }
+
+    @Test
+    void byteLimitEvictsEntries() {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults().withMaxEntries(1).withMaxBytes(4));
+        final DPwRKey key = DPwRKey.of("key");
+
+        cache.put(key, new byte[5], cache.version(key));
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.statistics().bytes());
+    }
+
+    @Test
+    void invalidationDropsTheEntryAndRejectsOverlappingReads() {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults());
+        final DPwRKey key = DPwRKey.of("key");
+
+        cache.put(key, new byte[]{1}, cache.version(key));
+        final long version = cache.version(key);
+        cache.invalidate(key);
+        cache.put(key, new byte[]{2}, version);
+
+        assertNull(cache.get(key));
+        assertEquals(1, cache.statistics().invalidations());
+    }
+
+    @Test
+    void expiredEntriesAreDropped() throws InterruptedException {
+        final NearCache cache = new NearCache(NearCachePolicy.defaults().withTimeToLive(Duration.ofMillis(1)));
+        final DPwRKey key = DPwRKey.of("key");
+
+        cache.put(key, new byte[]{1}, cache.version(key));
+        Thread.sleep(5);
+
+        assertNull(cache.get(key));
+        final NearCacheStatistics statistics = cache.statistics();
+        assertEquals(1, statistics.expirations());
+        assertEquals(1, statistics.misses());
+        assertEquals(0, statistics.entries());
+    }
+}
@@ -0,0 +1,46 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegisteredBufferPoolTest {
+
+    @Test
+    void sizeClassRoundsUpToTheNextPowerOfTwo() {
+        final int sizeClass = RegisteredBufferPool.sizeClass(1000);
+
+        assertEquals(1024, RegisteredBufferPool.classSize(sizeClass));
+    }
+
+    @Test
+    void sizeClassKeepsExactPowersOfTwo() {
+        final int sizeClass = RegisteredBufferPool.sizeClass(4096);
+
+        assertEquals(4096, RegisteredBufferPool.classSize(sizeClass));
+    }
+
+    @Test
+    void sizeClassOfSmallValuesIsTheSmallestClass() {
+        assertEquals(0, RegisteredBufferPool.sizeClass(0));
+        assertEquals(0, RegisteredBufferPool.sizeClass(1));
+    }
+
+    @Test
+    void sizeClassOfHugeValuesIsNotPooled() {
+        final int sizeClass = RegisteredBufferPool.sizeClass(64L * 1024 * 1024);
+
+        assertEquals(-1, sizeClass);
+    }
+
+    @Test
+    void acquireWithoutCapacityCountsAMiss() {
+        final RegisteredBufferPool pool = new RegisteredBufferPool(null, 0, 0);
+
+        final RegisteredBufferPool.RegisteredBuffer buffer = pool.acquire(100);
+
+        assertNull(buffer);
+        assertEquals(1, pool.statistics().misses());
+        assertEquals(0, pool.statistics().registeredBytes());
+    }
+}
@@ -0,0 +1,96 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void backoffDoublesUpToTheMaximum() {
+        final RetryPolicy policy = RetryPolicy.defaults()
+                .withBackoff(Duration.ofNanos(100), Duration.ofNanos(1000))
+                .withJitter(0);
+
+        assertEquals(100, policy.backoffNanos(1));
+        assertEquals(200, policy.backoffNanos(2));
+        assertEquals(800, policy.backoffNanos(4));
+        assertEquals(1000, policy.backoffNanos(5));
+        assertEquals(1000, policy.backoffNanos(100));
+    }
+
+    @Test
+    void jitterOnlyShortensTheBackoff() {
+        final RetryPolicy policy = RetryPolicy.defaults()
+                .withBackoff(Duration.ofNanos(1000), Duration.ofNanos(1000))
+                .withJitter(0.5);
+
+        for (int i = 0; i < 100; i++) {
+            final long backoff = policy.backoffNanos(1);
+            assertTrue(backoff >= 500 && backoff <= 1000);
+        }
+    }
+
+    @Test
+    void onlyTimeoutsAreRetryableByDefault() {
+        final RetryPolicy policy = RetryPolicy.defaults();
+
+        assertTrue(policy.isRetryable(new TimeoutException()));
+        assertFalse(policy.isRetryable(new IllegalStateException()));
+    }
+
+    @Test
+    void breakerOpensAfterTheThresholdAndLetsOneProbeThrough() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 100);
+
+        assertFalse(breaker.onFailure(0));
+        assertTrue(breaker.onFailure(0));
+        assertFalse(breaker.tryAcquire(50));
+        assertTrue(breaker.tryAcquire(100));
+        assertFalse(breaker.tryAcquire(101));
+
+        breaker.onSuccess();
+
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire(102));
+    }
+
+    @Test
+    void failedProbeOpensTheBreakerAgain() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 100);
+
+        assertTrue(breaker.onFailure(0));
+        assertTrue(breaker.tryAcquire(100));
+        assertTrue(breaker.onFailure(150));
+        assertFalse(breaker.tryAcquire(200));
+        assertTrue(breaker.tryAcquire(250));
+    }
+
+    @Test
+    void aLostConnectionCountsOnceForTheBreaker() {
+        final RetryCoordinator retries = new RetryCoordinator(RetryPolicy.defaults()
+                .withCircuitBreaker(2, Duration.ofSeconds(1)));
+
+        retries.onConnectionFailure(0, 0);
+
+        assertEquals(0, retries.statistics().openBreakers());
+        assertTrue(retries.allows(0, 1));
+
+        retries.onConnectionFailure(0, 2);
+
+        assertEquals(1, retries.statistics().openBreakers());
+    }
+
+    @Test
+    void zeroThresholdDisablesTheBreaker() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(breaker.onFailure(0));
+        }
+        assertTrue(breaker.tryAcquire(0));
+    }
+}
@@ -0,0 +1,59 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagAllocatorTest {
+
+    @Test
+    void nextKeepsTheLeasedTagIDInTheUpperHalf() {
+        final TagAllocator allocator = new TagAllocator(42, 0);
+
+        final long tagID = allocator.next();
+
+        assertEquals(42, tagID >>> Integer.SIZE);
+        assertEquals(1, (int) tagID);
+    }
+
+    @Test
+    void nextNeverReturnsTheSameTagIDTwice() {
+        final TagAllocator allocator = new TagAllocator(7, 0);
+
+        final long first = allocator.next();
+        final long second = allocator.next();
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void nextNeverCollidesWithServerAssignedTagIDs() {
+        final TagAllocator allocator = new TagAllocator(1, 0);
+
+        final long tagID = allocator.next();
+
+        assertTrue(tagID > Integer.MAX_VALUE);
+    }
+
+    @Test
+    void nextWorksWithNegativeLeasedTagIDs() {
+        final TagAllocator allocator = new TagAllocator(-1, 0);
+
+        final long tagID = allocator.next();
+
+        assertEquals(0xFFFFFFFFL, tagID >>> Integer.SIZE);
+    }
+
+    @Test
+    void constructorRejectsTheZeroPrefix() {
+        assertThrows(IllegalArgumentException.class, () -> new TagAllocator(0, 0));
+    }
+
+    @Test
+    void connectionsWithTheSameLeasedTagIDNeverCollide() {
+        final TagAllocator first = new TagAllocator(5, 0);
+        final TagAllocator second = new TagAllocator(5, 1);
+
+        assertNotEquals(first.next(), second.next());
+    }
+}
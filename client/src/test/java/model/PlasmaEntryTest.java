@@ -0,0 +1,52 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.apache.commons.lang3.SerializationUtils.deserialize;
+import static org.apache.commons.lang3.SerializationUtils.serialize;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlasmaEntryTest {
+
+    @Test
+    void serializationKeepsKeyValueAndNextPlasmaID() {
+        final PlasmaEntry entry = new PlasmaEntry("key", "value".getBytes(StandardCharsets.UTF_8), new byte[20]);
+
+        final PlasmaEntry result = deserialize(serialize(entry));
+
+        assertEquals(entry, result);
+    }
+
+    @Test
+    void compactLayoutKeepsKeyValueAndNextPlasmaID() {
+        final byte[] nextPlasmaID = new byte[20];
+        nextPlasmaID[19] = 7;
+        final PlasmaEntry entry = new PlasmaEntry("ä key", "value".getBytes(StandardCharsets.UTF_8), nextPlasmaID);
+        final ByteBuffer buffer = ByteBuffer.allocate(PlasmaEntry.compactSize(6, 5));
+
+        entry.writeCompact(buffer);
+        buffer.flip();
+        final PlasmaEntry result = PlasmaEntry.readCompact(buffer);
+
+        assertEquals(entry, result);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void compactValueIsAViewOfTheEntry() {
+        final PlasmaEntry entry = new PlasmaEntry("key", new byte[]{1, 2, 3}, new byte[20]);
+        final ByteBuffer buffer = ByteBuffer.allocate(PlasmaEntry.compactSize(3, 3));
+        entry.writeCompact(buffer);
+        buffer.flip();
+
+        final ByteBuffer value = PlasmaEntry.compactValue(buffer);
+        buffer.put(Integer.BYTES + 3 + Integer.BYTES, (byte) 9);
+
+        assertEquals(3, value.remaining());
+        assertEquals(9, value.get(0));
+        assertEquals(3, value.get(2));
+    }
+}
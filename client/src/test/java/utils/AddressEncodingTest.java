@@ -0,0 +1,35 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressEncodingTest {
+
+    @Test
+    void ipv4AddressesRoundTrip() {
+        final InetSocketAddress address = new InetSocketAddress("10.0.0.7", 2998);
+
+        final byte[] encoded = AddressEncoding.encode(address);
+
+        assertEquals(1 + 4 + 2, encoded.length);
+        assertEquals(address, AddressEncoding.decode(ByteBuffer.wrap(encoded)));
+    }
+
+    @Test
+    void ipv6AddressesRoundTrip() {
+        final InetSocketAddress address = new InetSocketAddress("fe80::1", 65535);
+
+        assertEquals(address, AddressEncoding.decode(ByteBuffer.wrap(AddressEncoding.encode(address))));
+    }
+
+    @Test
+    void invalidLengthsAreRejected() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{5, 0, 0, 0, 0, 0, 0, 0});
+
+        assertThrows(IllegalArgumentException.class, () -> AddressEncoding.decode(buffer));
+    }
+}
@@ -0,0 +1,89 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashPartitionerTest {
+
+    private static Map<Integer, InetSocketAddress> servers(final int serverCount) {
+        final Map<Integer, InetSocketAddress> servers = new HashMap<>();
+        for (int i = 0; i < serverCount; i++) {
+            servers.put(i, new InetSocketAddress("127.0.0.1", 2998 + i));
+        }
+        return servers;
+    }
+
+    @Test
+    void getResponsibleServerIDReturnsAKnownServer() {
+        final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+        partitioner.updateServers(servers(3));
+
+        for (int i = 0; i < 1000; i++) {
+            final int id = partitioner.getResponsibleServerID("key" + i, 3);
+            assertTrue(id >= 0 && id < 3);
+        }
+    }
+
+    @Test
+    void getResponsibleServerIDOfEncodedKeyMatchesTheKey() {
+        final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+        partitioner.updateServers(servers(3));
+
+        for (int i = 0; i < 100; i++) {
+            final String key = "key" + i;
+            assertEquals(partitioner.getResponsibleServerID(key, 3), partitioner.getResponsibleServerID(key.getBytes(StandardCharsets.UTF_8), 3));
+        }
+    }
+
+    @Test
+    void getResponsibleServerIDWithoutServersFallsBackToModulo() {
+        final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+
+        assertEquals(HashUtils.getResponsibleServerID("This is a key", 2), partitioner.getResponsibleServerID("This is a key", 2));
+        assertEquals(-1, partitioner.getResponsibleServerID("This is a key", 0));
+    }
+
+    @Test
+    void addingAServerOnlyMovesAFractionOfTheKeys() {
+        final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+        final int keyCount = 10000;
+        final int[] before = new int[keyCount];
+        partitioner.updateServers(servers(4));
+        for (int i = 0; i < keyCount; i++) {
+            before[i] = partitioner.getResponsibleServerID("key" + i, 4);
+        }
+
+        partitioner.updateServers(servers(5));
+        int moved = 0;
+        for (int i = 0; i < keyCount; i++) {
+            final int after = partitioner.getResponsibleServerID("key" + i, 5);
+            if (after != before[i]) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+
+        assertTrue(moved < keyCount * 0.3, "Moved " + moved + " keys");
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void serversWithHigherWeightGetMoreKeys() {
+        final Map<Integer, InetSocketAddress> servers = servers(2);
+        final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner(ConsistentHashPartitioner.DEFAULT_VIRTUAL_NODES, Map.of(servers.get(1), 3));
+        partitioner.updateServers(servers);
+
+        final int[] counts = new int[2];
+        for (int i = 0; i < 10000; i++) {
+            counts[partitioner.getResponsibleServerID("key" + i, 2)]++;
+        }
+
+        assertTrue(counts[1] > 2 * counts[0]);
+    }
+}
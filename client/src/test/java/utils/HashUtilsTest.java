@@ -2,6 +2,16 @@ package utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class HashUtilsTest {
@@ -64,4 +74,61 @@ class HashUtilsTest {
 
         assertEquals(0, id);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getResponsibleServerIDMatchesTheBigIntegerRouting() throws NoSuchAlgorithmException {
+        final Random random = new Random(42);
+        final List<String> keys = new ArrayList<>(List.of("", "This is a key", "hash_collision_test_1", "ümlaut key €", "user" + Long.MAX_VALUE));
+        for (int i = 0; i < 1000; i++) {
+            final char[] chars = new char[random.nextInt(100)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) (random.nextBoolean() ? 32 + random.nextInt(95) : random.nextInt(0xD800));
+            }
+            keys.add(new String(chars));
+        }
+        final int[] serverCounts = {1, 2, 3, 7, 16, 255, 65537, Integer.MAX_VALUE};
+
+        for (final String key : keys) {
+            for (final int serverCount : serverCounts) {
+                assertEquals(referenceServerID(key, serverCount), HashUtils.getResponsibleServerID(key, serverCount), key);
+            }
+        }
+    }
+
+    @Test
+    void getKeyHashIsTheUpperHalfOfTheMD5Hash() throws NoSuchAlgorithmException {
+        final String key = "This is a key";
+        final byte[] md5 = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(ByteBuffer.wrap(md5).getLong(), HashUtils.getKeyHash(key));
+    }
+
+    @Test
+    void getResponsibleServerIDOfEncodedKeyMatchesTheKey() {
+        for (final String key : List.of("This is a key", "Schlüssel ünicode", "hash_collision_test", "")) {
+            final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(HashUtils.getResponsibleServerID(key, 7), HashUtils.getResponsibleServerID(keyBytes, 7));
+            assertEquals(HashUtils.getKeyHash(key), HashUtils.getKeyHash(keyBytes));
+        }
+    }
+
+    /**
+     * The original routing, which hashed the key with a new digest and reduced it through a hex string and a BigInteger.
+     */
+    private static int referenceServerID(final String key, final int serverCount) throws NoSuchAlgorithmException {
+        byte[] id = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+        if (key.contains("hash_collision_test")) {
+            id = new byte[16];
+        }
+        if (Arrays.equals(id, new byte[16])) {
+            id[0] |= 1;
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : id) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit((b & 0xF), 16));
+        }
+        return new BigInteger(hex.toString(), 16).remainder(BigInteger.valueOf(serverCount)).intValue();
+    }
+}
@@ -0,0 +1,54 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopologyCacheTest {
+    private static final InetSocketAddress SEED = new InetSocketAddress("127.0.0.1", 2998);
+    private static final Map<Integer, InetSocketAddress> SERVERS = Map.of(
+            0, SEED,
+            1, new InetSocketAddress("127.0.0.1", 2999));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readReturnsTheWrittenServers() {
+        final TopologyCache cache = new TopologyCache(directory.resolve("topology"), Duration.ofMinutes(1));
+
+        cache.write(SEED, SERVERS);
+
+        assertEquals(SERVERS, cache.read(SEED));
+    }
+
+    @Test
+    void readIgnoresExpiredCaches() {
+        final Path file = directory.resolve("topology");
+        final Instant now = Instant.now();
+        new TopologyCache(file, Duration.ofMinutes(1), Clock.fixed(now, ZoneOffset.UTC)).write(SEED, SERVERS);
+
+        final TopologyCache later = new TopologyCache(file, Duration.ofMinutes(1), Clock.fixed(now.plusSeconds(61), ZoneOffset.UTC));
+
+        assertNull(later.read(SEED));
+    }
+
+    @Test
+    void readIgnoresCachesOfOtherSeeds() {
+        final TopologyCache cache = new TopologyCache(directory.resolve("topology"), Duration.ofMinutes(1));
+
+        cache.write(SEED, SERVERS);
+
+        assertNull(cache.read(new InetSocketAddress("127.0.0.1", 2999)));
+        assertNull(new TopologyCache(directory.resolve("missing"), Duration.ofMinutes(1)).read(SEED));
+    }
+}
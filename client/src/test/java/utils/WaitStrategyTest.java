@@ -0,0 +1,42 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitStrategyTest {
+
+    @Test
+    void spinThenYieldYieldsOnceTheSpinsAreUsedUp() {
+        final WaitStrategy strategy = WaitStrategy.spinThenYield(2);
+        final long deadline = System.nanoTime() + WaitStrategy.MAX_AWAIT_NANOS;
+
+        for (int idleRounds = 0; idleRounds < 5; idleRounds++) {
+            strategy.idle(null, idleRounds, deadline);
+        }
+
+        final WaitStatistics statistics = strategy.statistics();
+        assertEquals(WaitStrategy.Kind.SPIN_YIELD, statistics.kind());
+        assertEquals(2, statistics.spins());
+        assertEquals(3, statistics.yields());
+        assertEquals(0, statistics.awaits());
+    }
+
+    @Test
+    void busySpinNeverYields() {
+        final WaitStrategy strategy = WaitStrategy.busySpin();
+
+        for (int idleRounds = 0; idleRounds < 5; idleRounds++) {
+            strategy.idle(null, idleRounds, 0);
+        }
+
+        assertEquals(5, strategy.statistics().spins());
+        assertEquals(0, strategy.statistics().yields());
+        assertFalse(strategy.awaitsWorker());
+    }
+
+    @Test
+    void negativeSpinsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> WaitStrategy.spinThenAwait(-1));
+    }
+}